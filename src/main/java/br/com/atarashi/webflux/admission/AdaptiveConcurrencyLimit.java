@@ -0,0 +1,77 @@
+package br.com.atarashi.webflux.admission;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+// Limite de requisições simultâneas ajustado por AIMD: cresce de um em um enquanto as respostas saem
+// abaixo do limiar de latência e encolhe multiplicativamente quando passam dele ou falham com 5xx.
+// Encolhe no máximo uma vez por janela do limiar: as respostas que já estavam em voo quando a
+// sobrecarga começou chegam todas lentas juntas e são um único sinal, não um por resposta.
+final class AdaptiveConcurrencyLimit {
+
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final AtomicInteger limit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongSupplier nanoClock;
+    private final AtomicLong nextDecreaseNanos;
+
+    AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, long latencyThresholdNanos) {
+        this(initialLimit, minLimit, maxLimit, latencyThresholdNanos, System::nanoTime);
+    }
+
+    AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, long latencyThresholdNanos, LongSupplier nanoClock) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = latencyThresholdNanos;
+        this.limit = new AtomicInteger(Math.max(minLimit, Math.min(initialLimit, maxLimit)));
+        this.nanoClock = nanoClock;
+        this.nextDecreaseNanos = new AtomicLong(nanoClock.getAsLong());
+    }
+
+    boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit.get()) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    void release() {
+        inFlight.decrementAndGet();
+    }
+
+    // só cresce quando o limite está de fato sendo usado, senão ele subiria sem nunca ter sido testado
+    void onSample(long latencyNanos, boolean failed) {
+        if (failed || latencyNanos > latencyThresholdNanos) {
+            if (startDecreaseWindow()) {
+                limit.updateAndGet(current -> Math.max(minLimit, (int) (current * BACKOFF_RATIO)));
+            }
+        } else if (inFlight.get() * 2 >= limit.get()) {
+            limit.updateAndGet(current -> Math.min(maxLimit, current + 1));
+        }
+    }
+
+    // só uma das amostras concorrentes ganha o CAS e abre a próxima janela
+    private boolean startDecreaseWindow() {
+        long now = nanoClock.getAsLong();
+        long next = nextDecreaseNanos.get();
+        return now - next >= 0 && nextDecreaseNanos.compareAndSet(next, now + latencyThresholdNanos);
+    }
+
+    int getLimit() {
+        return limit.get();
+    }
+
+    int getInFlight() {
+        return inFlight.get();
+    }
+}
@@ -0,0 +1,113 @@
+package br.com.atarashi.webflux.admission;
+
+import br.com.atarashi.webflux.config.WebFluxConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Limite global de requisições em andamento, antes do WebFilterChainProxy do Spring Security (ordem -100):
+// o que é recusado aqui não chega a gastar bcrypt nem conexão do pool.
+@Component
+public class AdmissionControlFilter implements WebFilter, Ordered {
+
+    public static final int ORDER = -200;
+
+    private static final String HEALTH = "/actuator/health";
+    private static final String EXPORT_SUFFIX = "/export";
+    private static final long RETRY_AFTER_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final AdaptiveConcurrencyLimit limit;
+    private final LongAdder rejected = new LongAdder();
+
+    public AdmissionControlFilter(@Value("${admission.concurrency.initial-limit:64}") int initialLimit,
+                                  @Value("${admission.concurrency.min-limit:8}") int minLimit,
+                                  @Value("${admission.concurrency.max-limit:512}") int maxLimit,
+                                  @Value("${admission.concurrency.latency-threshold:500ms}") Duration latencyThreshold) {
+        this.limit = new AdaptiveConcurrencyLimit(initialLimit, minLimit, maxLimit, latencyThreshold.toNanos());
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        if (HEALTH.equals(request.getPath().pathWithinApplication().value())) {
+            return chain.filter(exchange);
+        }
+        if (!limit.tryAcquire()) {
+            rejected.increment();
+            return Rejections.tooManyRequests(exchange, Rejections.OVERLOADED, RETRY_AFTER_NANOS);
+        }
+
+        // streams ficam abertos o quanto o cliente quiser: ocupam vaga, mas a duração não diz nada sobre carga
+        boolean streaming = isStreaming(request);
+        long start = System.nanoTime();
+        return chain.filter(exchange)
+                .doOnSuccess(unused -> sample(streaming, start, isServerError(exchange.getResponse().getStatusCode())))
+                .doOnError(e -> sample(streaming, start, isServerError(e)))
+                .doFinally(signal -> limit.release());
+    }
+
+    private void sample(boolean streaming, long start, boolean failed) {
+        if (!streaming) {
+            limit.onSample(System.nanoTime() - start, failed);
+        }
+    }
+
+    private static boolean isStreaming(ServerHttpRequest request) {
+        // exportações e importações duram o tempo do download ou do upload, qualquer que seja o formato
+        String path = request.getPath().pathWithinApplication().value();
+        if (path.endsWith(EXPORT_SUFFIX) || LimitedRoute.isImportUpload(request)) {
+            return true;
+        }
+        HttpHeaders headers = request.getHeaders();
+        MediaType contentType = headers.getContentType();
+        if (contentType != null && contentType.equalsTypeAndSubtype(WebFluxConfig.APPLICATION_NDJSON)) {
+            return true;
+        }
+        for (MediaType accept : headers.getAccept()) {
+            if (accept.equalsTypeAndSubtype(MediaType.TEXT_EVENT_STREAM)
+                    || accept.equalsTypeAndSubtype(WebFluxConfig.APPLICATION_NDJSON)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // 4xx é problema do cliente, não sinal de sobrecarga
+    private static boolean isServerError(Throwable error) {
+        return !(error instanceof ResponseStatusException) || ((ResponseStatusException) error).getStatus().is5xxServerError();
+    }
+
+    private static boolean isServerError(HttpStatus status) {
+        return status != null && status.is5xxServerError();
+    }
+
+    public int getLimit() {
+        return limit.getLimit();
+    }
+
+    public int getInFlight() {
+        return limit.getInFlight();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+}
@@ -0,0 +1,35 @@
+package br.com.atarashi.webflux.admission;
+
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.security.Principal;
+import java.util.concurrent.TimeUnit;
+
+// Registrado no fim da SecurityWebFilterChain, depois da autorização, para uma requisição negada não
+// ocupar vaga. A vaga só é devolvida quando a resposta termina de ser escrita ou o cliente desconecta.
+public class ExportLimitWebFilter implements WebFilter {
+
+    private static final long RETRY_AFTER_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private final ExportLimiter exportLimiter;
+
+    public ExportLimitWebFilter(ExportLimiter exportLimiter) {
+        this.exportLimiter = exportLimiter;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        if (!LimitedRoute.isExport(exchange.getRequest())) {
+            return chain.filter(exchange);
+        }
+        return exchange.getPrincipal()
+                .map(Principal::getName)
+                .defaultIfEmpty(RateLimitWebFilter.clientAddress(exchange))
+                .flatMap(client -> exportLimiter.tryAcquire(client)
+                        ? chain.filter(exchange).doFinally(signal -> exportLimiter.release(client))
+                        : Rejections.tooManyRequests(exchange, Rejections.EXPORTS_BUSY, RETRY_AFTER_NANOS));
+    }
+}
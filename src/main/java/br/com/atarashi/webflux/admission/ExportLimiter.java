@@ -0,0 +1,49 @@
+package br.com.atarashi.webflux.admission;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+
+// Cada exportação segura uma conexão do pool até o fim do download, então o token bucket não basta:
+// limita quantas rodam ao mesmo tempo, no total e por cliente. O mapa só guarda os clientes com
+// exportação em andamento; a entrada some quando a última termina.
+@Component
+public class ExportLimiter {
+
+    private final Semaphore global;
+    private final int maxPerClient;
+    private final ConcurrentMap<String, Integer> running = new ConcurrentHashMap<>();
+
+    public ExportLimiter(@Value("${admission.export.max-concurrent:4}") int maxConcurrent,
+                         @Value("${admission.export.max-concurrent-per-client:1}") int maxConcurrentPerClient) {
+        this.global = new Semaphore(maxConcurrent);
+        this.maxPerClient = maxConcurrentPerClient;
+    }
+
+    public boolean tryAcquire(String client) {
+        if (!global.tryAcquire()) {
+            return false;
+        }
+        boolean[] acquired = {false};
+        running.compute(client, (key, exports) -> {
+            int current = exports == null ? 0 : exports;
+            if (current >= maxPerClient) {
+                return exports;
+            }
+            acquired[0] = true;
+            return current + 1;
+        });
+        if (!acquired[0]) {
+            global.release();
+        }
+        return acquired[0];
+    }
+
+    public void release(String client) {
+        running.computeIfPresent(client, (key, exports) -> exports == 1 ? null : exports - 1);
+        global.release();
+    }
+}
@@ -0,0 +1,48 @@
+package br.com.atarashi.webflux.admission;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+
+// grupos de rota com cota própria: cada cliente tem um bucket separado para cada grupo
+public enum LimitedRoute {
+    // POST /animes/batch, JSON ou NDJSON, e os uploads das importações de CSV
+    BATCH,
+    // GET /animes sem paginação, inclusive os streams NDJSON e SSE, a listagem de /gastos por período
+    // e as exportações, que varrem a tabela inteira
+    LIST,
+    DEFAULT;
+
+    private static final String ANIMES = "/animes";
+    private static final String BATCH_PATH = "/animes/batch";
+    private static final String IMPORT_UPLOAD_PREFIX = "/animes/imports/";
+    private static final String GASTOS = "/gastos";
+    private static final String ANIMES_EXPORT = "/animes/export";
+    private static final String GASTOS_EXPORT = "/gastos/export";
+
+    public static LimitedRoute of(ServerHttpRequest request) {
+        String path = request.getPath().pathWithinApplication().value();
+        if ((request.getMethod() == HttpMethod.POST && BATCH_PATH.equals(path)) || isImportUpload(request)) {
+            return BATCH;
+        }
+        if (request.getMethod() == HttpMethod.GET && ANIMES.equals(path) && !request.getQueryParams().containsKey("limit")) {
+            return LIST;
+        }
+        if (request.getMethod() == HttpMethod.GET
+                && (GASTOS.equals(path) || ANIMES_EXPORT.equals(path) || GASTOS_EXPORT.equals(path))) {
+            return LIST;
+        }
+        return DEFAULT;
+    }
+
+    // PUT /animes/imports/{id}: o corpo é o CSV da importação criada antes
+    public static boolean isImportUpload(ServerHttpRequest request) {
+        return request.getMethod() == HttpMethod.PUT
+                && request.getPath().pathWithinApplication().value().startsWith(IMPORT_UPLOAD_PREFIX);
+    }
+
+    // além da cota do grupo LIST, as exportações passam pelo ExportLimiter
+    public static boolean isExport(ServerHttpRequest request) {
+        String path = request.getPath().pathWithinApplication().value();
+        return request.getMethod() == HttpMethod.GET && (ANIMES_EXPORT.equals(path) || GASTOS_EXPORT.equals(path));
+    }
+}
@@ -0,0 +1,44 @@
+package br.com.atarashi.webflux.admission;
+
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.security.Principal;
+
+// Registrado dentro da SecurityWebFilterChain, logo antes da autorização, para já conhecer o principal
+// autenticado. Não é um bean: se fosse, o Spring também o colocaria na cadeia principal, fora da segurança.
+// Sem principal a cota é por endereço de origem.
+public class RateLimitWebFilter implements WebFilter {
+
+    private static final String UNKNOWN_CLIENT = "unknown";
+
+    private final RateLimiter rateLimiter;
+
+    public RateLimitWebFilter(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        LimitedRoute route = LimitedRoute.of(exchange.getRequest());
+        return exchange.getPrincipal()
+                .map(Principal::getName)
+                .defaultIfEmpty(clientAddress(exchange))
+                .flatMap(client -> {
+                    long waitNanos = rateLimiter.tryAcquire(route, client);
+                    return waitNanos == 0
+                            ? chain.filter(exchange)
+                            : Rejections.tooManyRequests(exchange, Rejections.RATE_LIMITED, waitNanos);
+                });
+    }
+
+    static String clientAddress(ServerWebExchange exchange) {
+        InetSocketAddress remoteAddress = exchange.getRequest().getRemoteAddress();
+        return remoteAddress == null || remoteAddress.getAddress() == null
+                ? UNKNOWN_CLIENT
+                : remoteAddress.getAddress().getHostAddress();
+    }
+}
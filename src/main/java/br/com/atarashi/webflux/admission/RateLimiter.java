@@ -0,0 +1,71 @@
+package br.com.atarashi.webflux.admission;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Um token bucket por cliente e por grupo de rota. Os buckets ficam num cache do Caffeine, que não trava
+// nas leituras; um bucket parado há mais tempo do que leva para encher de novo é igual a um novo.
+@Component
+public class RateLimiter {
+
+    private final Map<LimitedRoute, Quota> quotas = new EnumMap<>(LimitedRoute.class);
+    private final Map<LimitedRoute, Cache<String, TokenBucket>> buckets = new EnumMap<>(LimitedRoute.class);
+    private final Map<LimitedRoute, LongAdder> rejected = new EnumMap<>(LimitedRoute.class);
+
+    public RateLimiter(@Value("${admission.rate-limit.default.permits-per-second:200}") double defaultPermitsPerSecond,
+                       @Value("${admission.rate-limit.default.burst:400}") int defaultBurst,
+                       @Value("${admission.rate-limit.list.permits-per-second:20}") double listPermitsPerSecond,
+                       @Value("${admission.rate-limit.list.burst:40}") int listBurst,
+                       @Value("${admission.rate-limit.batch.permits-per-second:5}") double batchPermitsPerSecond,
+                       @Value("${admission.rate-limit.batch.burst:10}") int batchBurst,
+                       @Value("${admission.rate-limit.maximum-size:100000}") long maximumSize,
+                       @Value("${admission.rate-limit.expire-after-access:10m}") Duration expireAfterAccess) {
+        quotas.put(LimitedRoute.DEFAULT, new Quota(defaultPermitsPerSecond, defaultBurst));
+        quotas.put(LimitedRoute.LIST, new Quota(listPermitsPerSecond, listBurst));
+        quotas.put(LimitedRoute.BATCH, new Quota(batchPermitsPerSecond, batchBurst));
+        for (LimitedRoute route : LimitedRoute.values()) {
+            buckets.put(route, Caffeine.newBuilder()
+                    .maximumSize(maximumSize)
+                    .expireAfterAccess(expireAfterAccess)
+                    .build());
+            rejected.put(route, new LongAdder());
+        }
+    }
+
+    // 0 quando admitido; senão quantos nanos o cliente deve esperar antes de tentar de novo
+    public long tryAcquire(LimitedRoute route, String client) {
+        Cache<String, TokenBucket> routeBuckets = buckets.get(route);
+        TokenBucket bucket = routeBuckets.getIfPresent(client);
+        if (bucket == null) {
+            Quota quota = quotas.get(route);
+            bucket = routeBuckets.get(client, key -> new TokenBucket(quota.permitsPerSecond, quota.burst, System.nanoTime()));
+        }
+
+        long waitNanos = bucket.tryAcquire(System.nanoTime());
+        if (waitNanos > 0) {
+            rejected.get(route).increment();
+        }
+        return waitNanos;
+    }
+
+    public long getRejected(LimitedRoute route) {
+        return rejected.get(route).sum();
+    }
+
+    private static final class Quota {
+        private final double permitsPerSecond;
+        private final int burst;
+
+        private Quota(double permitsPerSecond, int burst) {
+            this.permitsPerSecond = permitsPerSecond;
+            this.burst = burst;
+        }
+    }
+}
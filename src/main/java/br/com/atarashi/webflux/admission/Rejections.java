@@ -0,0 +1,29 @@
+package br.com.atarashi.webflux.admission;
+
+import br.com.atarashi.webflux.exception.PrebuiltError;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeUnit;
+
+// o 429 é escrito direto pelos filtros, com o corpo pré-serializado e o Retry-After em segundos inteiros
+final class Rejections {
+
+    static final PrebuiltError RATE_LIMITED =
+            new PrebuiltError(HttpStatus.TOO_MANY_REQUESTS, "Rate limit exceeded");
+    static final PrebuiltError OVERLOADED =
+            new PrebuiltError(HttpStatus.TOO_MANY_REQUESTS, "Too many concurrent requests");
+    static final PrebuiltError EXPORTS_BUSY =
+            new PrebuiltError(HttpStatus.TOO_MANY_REQUESTS, "Too many concurrent exports");
+
+    private Rejections() {
+    }
+
+    static Mono<Void> tooManyRequests(ServerWebExchange exchange, PrebuiltError error, long retryAfterNanos) {
+        long retryAfterSeconds = Math.max(1, (retryAfterNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+        exchange.getResponse().getHeaders().set(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+        return error.writeTo(exchange);
+    }
+}
@@ -0,0 +1,33 @@
+package br.com.atarashi.webflux.admission;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Token bucket no formato GCRA: em vez de contar fichas guarda o instante teórico da próxima chegada,
+// então o estado inteiro cabe num único AtomicLong e a admissão é um compare-and-set, sem lock.
+final class TokenBucket {
+
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    private final AtomicLong theoreticalArrivalNanos;
+
+    TokenBucket(double permitsPerSecond, int burst, long nowNanos) {
+        this.emissionIntervalNanos = (long) (1_000_000_000L / permitsPerSecond);
+        this.burstToleranceNanos = emissionIntervalNanos * (Math.max(1, burst) - 1);
+        this.theoreticalArrivalNanos = new AtomicLong(nowNanos);
+    }
+
+    // 0 quando a requisição foi admitida; senão quantos nanos faltam para a próxima ficha
+    long tryAcquire(long nowNanos) {
+        while (true) {
+            long theoreticalArrival = theoreticalArrivalNanos.get();
+            long base = Math.max(theoreticalArrival, nowNanos);
+            long waitNanos = base - burstToleranceNanos - nowNanos;
+            if (waitNanos > 0) {
+                return waitNanos;
+            }
+            if (theoreticalArrivalNanos.compareAndSet(theoreticalArrival, base + emissionIntervalNanos)) {
+                return 0;
+            }
+        }
+    }
+}
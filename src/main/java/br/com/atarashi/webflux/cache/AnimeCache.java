@@ -0,0 +1,48 @@
+package br.com.atarashi.webflux.cache;
+
+import br.com.atarashi.webflux.domain.Anime;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+@Component
+public class AnimeCache {
+
+    private final AsyncCache<Integer, Anime> cache;
+
+    public AnimeCache(@Value("${anime.cache.maximum-size:10000}") long maximumSize,
+                      @Value("${anime.cache.expire-after-write:5m}") Duration expireAfterWrite) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .buildAsync();
+    }
+
+    // requisições simultâneas para o mesmo id compartilham o mesmo future enquanto a busca não termina;
+    // cada uma assina um future dependente, então o cancelamento de uma não cancela a busca das outras
+    public Mono<Anime> get(int id, Function<Integer, Mono<Anime>> loader) {
+        return Mono.defer(() -> Mono.fromFuture(cache.get(id, (key, executor) -> loader.apply(key).toFuture())
+                .thenApply(Function.identity())));
+    }
+
+    public void invalidate(Integer id) {
+        if (id != null) {
+            cache.synchronous().invalidate(id);
+        }
+    }
+
+    public void invalidateAll() {
+        cache.synchronous().invalidateAll();
+    }
+
+    public CacheStats stats() {
+        return cache.synchronous().stats();
+    }
+}
@@ -0,0 +1,68 @@
+package br.com.atarashi.webflux.cache;
+
+import br.com.atarashi.webflux.repository.GastoTagRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+// Nome de tag -> id em TAG. Tags nunca são apagadas, então um id em cache não fica velho. O texto
+// das tags vem do cliente, então o cache é limitado: uma tag despejada só volta a ser buscada no banco.
+@Component
+public class GastoTagInterner {
+
+    private final Cache<String, Long> ids;
+    private final GastoTagRepository gastoTagRepository;
+    private final TransactionalOperator requiresNew;
+
+    public GastoTagInterner(GastoTagRepository gastoTagRepository, ReactiveTransactionManager transactionManager,
+                            @Value("${gasto.tags.cache.maximum-size:10000}") long maximumSize) {
+        this.ids = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .build();
+        this.gastoTagRepository = gastoTagRepository;
+        // a criação é confirmada na hora, fora da transação de quem chamou: um rollback dela
+        // não pode deixar no cache um id que não existe no banco
+        this.requiresNew = TransactionalOperator.create(transactionManager,
+                new DefaultTransactionDefinition(TransactionDefinition.PROPAGATION_REQUIRES_NEW));
+    }
+
+    // ids na mesma ordem das tags, criando as que ainda não existem
+    public Mono<List<Long>> intern(List<String> tags) {
+        return Flux.fromIterable(tags)
+                .concatMap(this::intern)
+                .collectList();
+    }
+
+    public Mono<Long> intern(String tag) {
+        Long id = ids.getIfPresent(tag);
+        if (id != null) {
+            return Mono.just(id);
+        }
+        return gastoTagRepository.findId(tag)
+                .switchIfEmpty(gastoTagRepository.insert(tag)
+                        .onErrorResume(DataIntegrityViolationException.class, e -> Mono.empty())
+                        .then(gastoTagRepository.findId(tag)))
+                .as(requiresNew::transactional)
+                .doOnNext(created -> ids.put(tag, created));
+    }
+
+    // só consulta: uma tag que nunca foi usada volta vazia e não entra no dicionário
+    public Mono<Long> find(String tag) {
+        Long id = ids.getIfPresent(tag);
+        if (id != null) {
+            return Mono.just(id);
+        }
+        return gastoTagRepository.findId(tag)
+                .doOnNext(found -> ids.put(tag, found));
+    }
+}
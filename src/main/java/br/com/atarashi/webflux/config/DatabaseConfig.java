@@ -1,27 +1,89 @@
 package br.com.atarashi.webflux.config;
 
+import java.time.Duration;
+
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.core.io.ClassPathResource;
+import org.springframework.context.annotation.DependsOn;
 import org.springframework.data.r2dbc.config.AbstractR2dbcConfiguration;
 import org.springframework.data.r2dbc.connectionfactory.R2dbcTransactionManager;
-import org.springframework.data.r2dbc.connectionfactory.init.CompositeDatabasePopulator;
-import org.springframework.data.r2dbc.connectionfactory.init.ConnectionFactoryInitializer;
-import org.springframework.data.r2dbc.connectionfactory.init.ResourceDatabasePopulator;
 import org.springframework.data.r2dbc.repository.config.EnableR2dbcRepositories;
 import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
 
 import io.r2dbc.h2.H2ConnectionFactory;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
 import io.r2dbc.spi.ConnectionFactory;
 
 @Configuration
 @EnableR2dbcRepositories
-public class DatabaseConfig extends AbstractR2dbcConfiguration {
-	
+public class DatabaseConfig extends AbstractR2dbcConfiguration implements DisposableBean {
+
+    @Value("${database.name:webflux_essentials}")
+    private String databaseName;
+
+    @Value("${database.username:sa}")
+    private String databaseUsername;
+
+    @Value("${database.password:}")
+    private String databasePassword;
+
+    @Value("${database.pool.enabled:true}")
+    private boolean poolEnabled;
+
+    @Value("${database.pool.initial-size:10}")
+    private int poolInitialSize;
+
+    @Value("${database.pool.max-size:20}")
+    private int poolMaxSize;
+
+    @Value("${database.pool.max-acquire-time:5s}")
+    private Duration poolMaxAcquireTime;
+
+    @Value("${database.pool.max-idle-time:30m}")
+    private Duration poolMaxIdleTime;
+
+    @Value("${database.pool.validation-query:SELECT 1}")
+    private String poolValidationQuery;
+
+    @Value("${database.pool.register-jmx:true}")
+    private boolean poolRegisterJmx;
+
+    private ConnectionPool connectionPool;
+
 	@Override
-    @Bean
+    // sem destroy method inferido: o close() do pool só devolve um Publisher; o descarte fica em destroy()
+    @Bean(destroyMethod = "")
+    @DependsOn("flyway")
     public ConnectionFactory connectionFactory() {
-        return H2ConnectionFactory.inMemory("webflux_essentials");
+        ConnectionFactory connectionFactory = H2ConnectionFactory.inMemory(databaseName, databaseUsername, databasePassword);
+        if (!poolEnabled) {
+            return connectionFactory;
+        }
+
+        // o pool limita as conexões simultâneas e reaproveita as já abertas
+        connectionPool = new ConnectionPool(ConnectionPoolConfiguration.builder(connectionFactory)
+                .name(databaseName)
+                .initialSize(poolInitialSize)
+                .maxSize(poolMaxSize)
+                .maxAcquireTime(poolMaxAcquireTime)
+                .maxIdleTime(poolMaxIdleTime)
+                .validationQuery(poolValidationQuery)
+                .registerJmx(poolRegisterJmx)
+                .build());
+        return connectionPool;
+    }
+
+    // roda depois dos beans que usam o connectionFactory, que dependem desta configuração
+    @Override
+    public void destroy() {
+        if (connectionPool != null) {
+            connectionPool.dispose();
+        }
     }
 	
     @Bean
@@ -30,16 +92,15 @@ public class DatabaseConfig extends AbstractR2dbcConfiguration {
     }
 
     @Bean
-    public ConnectionFactoryInitializer initializer(ConnectionFactory connectionFactory) {
-
-        ConnectionFactoryInitializer initializer = new ConnectionFactoryInitializer();
-        initializer.setConnectionFactory(connectionFactory);
-
-        CompositeDatabasePopulator populator = new CompositeDatabasePopulator();
-        populator.addPopulators(new ResourceDatabasePopulator(new ClassPathResource("schema.sql")));
-        populator.addPopulators(new ResourceDatabasePopulator(new ClassPathResource("data.sql")));
-        initializer.setDatabasePopulator(populator);
+    TransactionalOperator transactionalOperator(ReactiveTransactionManager transactionManager) {
+        return TransactionalOperator.create(transactionManager);
+    }
 
-        return initializer;
+    // migrações versionadas em db/migration, aplicadas uma única vez antes do R2DBC abrir conexões
+    @Bean(initMethod = "migrate")
+    public Flyway flyway() {
+        return Flyway.configure()
+                .dataSource("jdbc:h2:mem:" + databaseName + ";DB_CLOSE_DELAY=-1", databaseUsername, databasePassword)
+                .load();
     }
 }
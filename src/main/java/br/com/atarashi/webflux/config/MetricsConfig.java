@@ -0,0 +1,66 @@
+package br.com.atarashi.webflux.config;
+
+import br.com.atarashi.webflux.admission.AdmissionControlFilter;
+import br.com.atarashi.webflux.admission.LimitedRoute;
+import br.com.atarashi.webflux.admission.RateLimiter;
+import br.com.atarashi.webflux.cache.AnimeCache;
+import br.com.atarashi.webflux.metrics.CacheStatsMetrics;
+import br.com.atarashi.webflux.security.PasswordVerificationScheduler;
+import br.com.atarashi.webflux.service.DevDojoUserDetailsService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.TimeUnit;
+
+// liga ao Micrometer os contadores que cada componente já mantém; o pool R2DBC o Spring Boot já registra sozinho
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    MeterBinder animeCacheMetrics(AnimeCache animeCache) {
+        return new CacheStatsMetrics("anime", animeCache::stats);
+    }
+
+    @Bean
+    MeterBinder principalCacheMetrics(DevDojoUserDetailsService devDojoUserDetailsService) {
+        return new CacheStatsMetrics("principal", devDojoUserDetailsService::stats);
+    }
+
+    @Bean
+    MeterBinder passwordVerificationMetrics(PasswordVerificationScheduler scheduler) {
+        return registry -> {
+            FunctionTimer.builder("security.password.verifications", scheduler,
+                    PasswordVerificationScheduler::getVerifications,
+                    PasswordVerificationScheduler::getVerificationNanos,
+                    TimeUnit.NANOSECONDS)
+                    .register(registry);
+            Gauge.builder("security.password.verifications.pending", scheduler, PasswordVerificationScheduler::getPending)
+                    .register(registry);
+            FunctionCounter.builder("security.password.verifications.rejected", scheduler, PasswordVerificationScheduler::getRejected)
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    MeterBinder admissionMetrics(AdmissionControlFilter admissionControlFilter, RateLimiter rateLimiter) {
+        return registry -> {
+            Gauge.builder("admission.concurrency.limit", admissionControlFilter, AdmissionControlFilter::getLimit)
+                    .register(registry);
+            Gauge.builder("admission.concurrency.in-flight", admissionControlFilter, AdmissionControlFilter::getInFlight)
+                    .register(registry);
+            FunctionCounter.builder("admission.rejected", admissionControlFilter, AdmissionControlFilter::getRejected)
+                    .tag("reason", "concurrency")
+                    .register(registry);
+            for (LimitedRoute route : LimitedRoute.values()) {
+                FunctionCounter.builder("admission.rejected", rateLimiter, limiter -> limiter.getRejected(route))
+                        .tag("reason", "rate")
+                        .tag("route", route.name().toLowerCase())
+                        .register(registry);
+            }
+        };
+    }
+}
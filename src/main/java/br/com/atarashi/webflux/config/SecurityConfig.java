@@ -1,12 +1,24 @@
 package br.com.atarashi.webflux.config;
 
+import br.com.atarashi.webflux.admission.ExportLimitWebFilter;
+import br.com.atarashi.webflux.admission.ExportLimiter;
+import br.com.atarashi.webflux.admission.RateLimitWebFilter;
+import br.com.atarashi.webflux.admission.RateLimiter;
+import br.com.atarashi.webflux.security.CachingReactiveAuthenticationManager;
+import br.com.atarashi.webflux.metrics.CacheStatsMetrics;
+import br.com.atarashi.webflux.security.JwtTokenService;
+import br.com.atarashi.webflux.security.MeteredReactiveAuthenticationManager;
+import br.com.atarashi.webflux.security.PasswordVerificationScheduler;
 import br.com.atarashi.webflux.service.DevDojoUserDetailsService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.ReactiveAuthenticationManager;
 import org.springframework.security.authentication.UserDetailsRepositoryReactiveAuthenticationManager;
 import org.springframework.security.config.annotation.method.configuration.EnableReactiveMethodSecurity;
 import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.SecurityWebFiltersOrder;
 import org.springframework.security.config.web.server.ServerHttpSecurity;
 import org.springframework.security.core.userdetails.MapReactiveUserDetailsService;
 import org.springframework.security.core.userdetails.User;
@@ -15,34 +27,67 @@ import org.springframework.security.crypto.factory.PasswordEncoderFactories;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.server.SecurityWebFilterChain;
 
+import java.time.Duration;
+
 @EnableWebFluxSecurity
 @EnableReactiveMethodSecurity
 public class SecurityConfig {
 
     @Bean
-    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http) {
+    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http, JwtTokenService jwtTokenService,
+                                                         MeterRegistry meterRegistry, RateLimiter rateLimiter,
+                                                         ExportLimiter exportLimiter) {
         //@formmatter:off
         return http
+                .addFilterBefore(new RateLimitWebFilter(rateLimiter), SecurityWebFiltersOrder.AUTHORIZATION)
+                .addFilterAt(new ExportLimitWebFilter(exportLimiter), SecurityWebFiltersOrder.LAST)
                 .csrf().disable()
                 .authorizeExchange()
                     .pathMatchers(HttpMethod.POST, "/animes/**").hasRole("ADMIN")
                     .pathMatchers(HttpMethod.PUT, "/animes/**").hasRole("ADMIN")
                     .pathMatchers(HttpMethod.DELETE, "/animes/**").hasRole("ADMIN")
                     .pathMatchers(HttpMethod.GET, "animes/**").hasRole("USER")
+                    .pathMatchers(HttpMethod.POST, "/gastos/**").hasRole("ADMIN")
+                    .pathMatchers(HttpMethod.PUT, "/gastos/**").hasRole("ADMIN")
+                    .pathMatchers(HttpMethod.DELETE, "/gastos/**").hasRole("ADMIN")
+                    .pathMatchers(HttpMethod.GET, "/gastos/**").hasRole("USER")
                     .pathMatchers("/webjars/**", "/v3/api-docs/**", "/swagger-ui.html").permitAll()
+                    .pathMatchers("/actuator/health").permitAll()
+                    .pathMatchers("/actuator/**").hasRole("ADMIN")
                 .anyExchange().authenticated()
                 .and()
                     .formLogin()
                 .and()
                     .httpBasic()
+                .and()
+                    .oauth2ResourceServer()
+                        .jwt()
+                            .authenticationManager(new MeteredReactiveAuthenticationManager(
+                                    jwtTokenService.authenticationManager(), meterRegistry, "bearer"))
+                    .and()
                 .and()
                     .build();
         //@formmatter:on
     }
 
     @Bean
-    ReactiveAuthenticationManager authenticationManager(DevDojoUserDetailsService devDojoUserDetailsService) {
-        return new UserDetailsRepositoryReactiveAuthenticationManager(devDojoUserDetailsService);
+    ReactiveAuthenticationManager authenticationManager(DevDojoUserDetailsService devDojoUserDetailsService,
+                                                        PasswordVerificationScheduler passwordVerificationScheduler,
+                                                        MeterRegistry meterRegistry,
+                                                        @Value("${security.cache.credentials.maximum-size:1000}") long maximumSize,
+                                                        @Value("${security.cache.credentials.expire-after-write:1m}") Duration expireAfterWrite) {
+        UserDetailsRepositoryReactiveAuthenticationManager userDetailsAuthenticationManager =
+                new UserDetailsRepositoryReactiveAuthenticationManager(devDojoUserDetailsService);
+        userDetailsAuthenticationManager.setScheduler(passwordVerificationScheduler.scheduler());
+        userDetailsAuthenticationManager.setPasswordEncoder(
+                passwordVerificationScheduler.timed(PasswordEncoderFactories.createDelegatingPasswordEncoder()));
+
+        CachingReactiveAuthenticationManager cachingAuthenticationManager = new CachingReactiveAuthenticationManager(
+                authentication -> passwordVerificationScheduler.admit(userDetailsAuthenticationManager.authenticate(authentication)),
+                maximumSize, expireAfterWrite);
+        new CacheStatsMetrics("credentials", cachingAuthenticationManager::stats).bindTo(meterRegistry);
+
+        return new MeteredReactiveAuthenticationManager(cachingAuthenticationManager, meterRegistry, "basic");
     }
 
 //    @Bean
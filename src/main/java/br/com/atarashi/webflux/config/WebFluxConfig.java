@@ -0,0 +1,39 @@
+package br.com.atarashi.webflux.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.autoconfigure.codec.CodecProperties;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+
+import java.util.List;
+
+@Configuration
+public class WebFluxConfig {
+
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+    public static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType(APPLICATION_NDJSON_VALUE);
+
+    // roda depois do customizer do jackson do spring boot para não ser sobrescrito
+    @Bean
+    @Order(1)
+    public CodecCustomizer ndjsonCodecCustomizer(ObjectMapper objectMapper, CodecProperties codecProperties) {
+        return configurer -> {
+            Jackson2JsonEncoder encoder = new Jackson2JsonEncoder(objectMapper,
+                    MediaType.APPLICATION_JSON, new MediaType("application", "*+json"), APPLICATION_NDJSON);
+            encoder.setStreamingMediaTypes(List.of(MediaType.APPLICATION_STREAM_JSON, APPLICATION_NDJSON));
+            configurer.defaultCodecs().jackson2JsonEncoder(encoder);
+
+            Jackson2JsonDecoder decoder = new Jackson2JsonDecoder(objectMapper,
+                    MediaType.APPLICATION_JSON, new MediaType("application", "*+json"), APPLICATION_NDJSON);
+            if (codecProperties.getMaxInMemorySize() != null) {
+                decoder.setMaxInMemorySize((int) codecProperties.getMaxInMemorySize().toBytes());
+            }
+            configurer.defaultCodecs().jackson2JsonDecoder(decoder);
+        };
+    }
+}
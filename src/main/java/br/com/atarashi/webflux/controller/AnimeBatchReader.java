@@ -0,0 +1,47 @@
+package br.com.atarashi.webflux.controller;
+
+import br.com.atarashi.webflux.domain.Anime;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Mono;
+
+import java.util.Collections;
+import java.util.List;
+
+// lê o corpo do POST /animes/batch com um limite próprio: só esse endpoint precisa juntar
+// a lista inteira em memória, os demais continuam com o limite padrão dos codecs
+@Component
+class AnimeBatchReader {
+
+    private static final ResolvableType ANIME_LIST = ResolvableType.forClassWithGenerics(List.class, Anime.class);
+
+    private final Jackson2JsonDecoder decoder;
+
+    AnimeBatchReader(ObjectMapper objectMapper,
+                     @Value("${anime.batch.max-in-memory-size:32MB}") DataSize maxInMemorySize) {
+        this.decoder = new Jackson2JsonDecoder(objectMapper);
+        this.decoder.setMaxInMemorySize((int) maxInMemorySize.toBytes());
+    }
+
+    // mesmos erros do @RequestBody: corpo ausente ou inválido vira 400, corpo grande demais vira 413
+    @SuppressWarnings("unchecked")
+    Mono<List<Anime>> read(ServerHttpRequest request) {
+        MediaType contentType = request.getHeaders().getContentType();
+        return decoder.decodeToMono(request.getBody(), ANIME_LIST, contentType, Collections.emptyMap())
+                .map(animes -> (List<Anime>) animes)
+                .switchIfEmpty(Mono.defer(() -> Mono.error(new ServerWebInputException("Request body is missing"))))
+                .onErrorMap(DecodingException.class, e -> new ServerWebInputException("Failed to read HTTP message", null, e))
+                .onErrorMap(DataBufferLimitException.class, e -> new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE, e.getMessage(), e));
+    }
+}
@@ -1,21 +1,31 @@
 package br.com.atarashi.webflux.controller;
 
+import br.com.atarashi.webflux.config.WebFluxConfig;
 import br.com.atarashi.webflux.domain.Anime;
+import br.com.atarashi.webflux.domain.AnimeChunkAck;
+import br.com.atarashi.webflux.domain.AnimePage;
+import br.com.atarashi.webflux.export.ExportFormat;
 import br.com.atarashi.webflux.service.AnimeService;
+import br.com.atarashi.webflux.service.ExportService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.enums.SecuritySchemeType;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.security.SecurityScheme;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import javax.validation.Valid;
-import java.util.List;
 
 @RequiredArgsConstructor
 @RestController
@@ -28,6 +38,8 @@ import java.util.List;
 )
 public class AnimeController {
     private final AnimeService animeService;
+    private final ExportService exportService;
+    private final AnimeBatchReader animeBatchReader;
 
     @GetMapping
     @ResponseStatus(HttpStatus.OK)
@@ -35,8 +47,63 @@ public class AnimeController {
     @Operation(summary = "List all animes",
             security = @SecurityRequirement(name = "Basic Authentication"),
             tags = {"anime"})
-    public Flux<Anime> listAll() {
-        return animeService.findAll();
+    public Mono<ResponseEntity<Flux<Anime>>> listAll() {
+        // a versão é lida antes da consulta: uma escrita concorrente só pode deixar o ETag mais velho
+        // e o corpo só é gerado se o If-None-Match não bater
+        return Mono.fromSupplier(() -> ResponseEntity.ok()
+                .eTag(AnimeETag.ofCollection(animeService.collectionVersion()))
+                .cacheControl(AnimeETag.CACHE_CONTROL)
+                .body(Flux.defer(animeService::findAll)));
+    }
+
+    @GetMapping(produces = {WebFluxConfig.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    @ResponseStatus(HttpStatus.OK)
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Stream all animes one by one as NDJSON or Server-Sent Events",
+            security = @SecurityRequirement(name = "Basic Authentication"),
+            tags = {"anime"})
+    public Flux<Anime> streamAll() {
+        return animeService.streamAll();
+    }
+
+    @GetMapping(params = "limit")
+    @ResponseStatus(HttpStatus.OK)
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "List animes page by page using the last seen id as cursor",
+            security = @SecurityRequirement(name = "Basic Authentication"),
+            tags = {"anime"})
+    public Mono<ResponseEntity<Mono<AnimePage>>> listPage(@RequestParam(defaultValue = "0") int after, @RequestParam int limit) {
+        return Mono.fromSupplier(() -> ResponseEntity.ok()
+                .eTag(AnimeETag.ofCollection(animeService.collectionVersion()))
+                .cacheControl(AnimeETag.CACHE_CONTROL)
+                .body(Mono.defer(() -> animeService.findPage(after, limit))));
+    }
+
+    @GetMapping(path = "search")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Search animes by the beginning of any word in the name, best matches first",
+            security = @SecurityRequirement(name = "Basic Authentication"),
+            tags = {"anime"})
+    public Flux<Anime> search(@RequestParam String q, @RequestParam(defaultValue = "10") int limit) {
+        return animeService.search(q, limit);
+    }
+
+    @GetMapping(path = "export")
+    @ResponseStatus(HttpStatus.OK)
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Export every anime as CSV or NDJSON (format=csv|ndjson), gzip-compressed with gzip=true",
+            security = @SecurityRequirement(name = "Basic Authentication"),
+            tags = {"anime"})
+    public Mono<ResponseEntity<Flux<DataBuffer>>> export(@RequestParam(defaultValue = "csv") String format,
+                                                         @RequestParam(defaultValue = "false") boolean gzip,
+                                                         ServerHttpResponse response) {
+        return Mono.fromSupplier(() -> {
+            ExportFormat exportFormat = ExportFormat.of(format);
+            return ResponseEntity.ok()
+                    .contentType(exportFormat.contentType(gzip))
+                    .header(HttpHeaders.CONTENT_DISPOSITION, exportFormat.contentDisposition("animes", gzip))
+                    .body(exportService.exportAnimes(exportFormat, gzip, response.bufferFactory()));
+        });
     }
 
     @GetMapping(path = "{id}")
@@ -44,8 +111,13 @@ public class AnimeController {
     @Operation(summary = "Find by id animes",
             security = @SecurityRequirement(name = "Basic Authentication"),
             tags = {"anime"})
-    public Mono<Anime> findById(@PathVariable int id) {
-        return animeService.findById(id);
+    public Mono<ResponseEntity<Anime>> findById(@PathVariable int id) {
+        // If-None-Match é conferido pelo próprio Spring: com o mesmo ETag a resposta é 304 sem corpo
+        return animeService.findById(id)
+                .map(anime -> ResponseEntity.ok()
+                        .eTag(AnimeETag.of(anime))
+                        .cacheControl(AnimeETag.CACHE_CONTROL)
+                        .body(anime));
     }
 
     @PostMapping
@@ -57,30 +129,44 @@ public class AnimeController {
         return animeService.save(anime);
     }
 
-    @PostMapping("batch")
+    @PostMapping(path = "batch", consumes = {MediaType.APPLICATION_JSON_VALUE, "application/*+json"})
     @ResponseStatus(HttpStatus.CREATED)
     @Operation(summary = "Save batch animes",
             security = @SecurityRequirement(name = "Basic Authentication"),
             tags = {"anime"})
-    public Flux<Anime> saveBath(@RequestBody List<Anime> animes) {
-        return animeService.saveAll(animes);
+    public Flux<Anime> saveBath(ServerHttpRequest request) {
+        return animeBatchReader.read(request)
+                .flatMapMany(animeService::saveAll);
+    }
+
+    @PostMapping(path = "batch", consumes = WebFluxConfig.APPLICATION_NDJSON_VALUE, produces = WebFluxConfig.APPLICATION_NDJSON_VALUE)
+    @ResponseStatus(HttpStatus.CREATED)
+    @Operation(summary = "Ingest a NDJSON stream of animes in transactional chunks",
+            security = @SecurityRequirement(name = "Basic Authentication"),
+            tags = {"anime"})
+    public Flux<AnimeChunkAck> ingest(@RequestBody Flux<Anime> animes) {
+        return animeService.ingest(animes);
     }
 
     @PutMapping(path = "{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
-    @Operation(summary = "Update animes",
+    @Operation(summary = "Update animes, only if If-Match or the body version still matches when present",
             security = @SecurityRequirement(name = "Basic Authentication"),
             tags = {"anime"})
-    public Mono<Void> update(@PathVariable int id, @Valid @RequestBody Anime anime) {
-        return animeService.update(anime.withId(id));
+    public Mono<Void> update(@PathVariable int id,
+                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                             @Valid @RequestBody Anime anime) {
+        Integer version = ifMatch != null ? AnimeETag.parseVersion(ifMatch) : anime.getVersion();
+        return animeService.update(anime.withId(id).withVersion(version));
     }
 
     @DeleteMapping(path = "{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
-    @Operation(summary = "Delete animes",
+    @Operation(summary = "Delete animes, only if If-Match still matches when present",
             security = @SecurityRequirement(name = "Basic Authentication"),
             tags = {"anime"})
-    public Mono<Void> delete(@PathVariable int id) {
-        return animeService.delete(id);
+    public Mono<Void> delete(@PathVariable int id,
+                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return animeService.delete(id, ifMatch != null ? AnimeETag.parseVersion(ifMatch) : null);
     }
 }
@@ -0,0 +1,49 @@
+package br.com.atarashi.webflux.controller;
+
+import br.com.atarashi.webflux.domain.Anime;
+import br.com.atarashi.webflux.exception.PrebuiltError;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+
+// ETag forte de um anime: a versão entre aspas, ex. "3"
+final class AnimeETag {
+
+    private static final String ANY = "*";
+
+    private static final PrebuiltError IF_MATCH_MISMATCH =
+            new PrebuiltError(HttpStatus.PRECONDITION_FAILED, "If-Match does not match the current anime version");
+
+    // o contador da coleção recomeça a cada boot, então o ETag carrega também o instante da subida
+    private static final String BOOT = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+
+    // o cliente pode guardar a resposta, mas precisa revalidar a cada uso
+    static final CacheControl CACHE_CONTROL = CacheControl.noCache().cachePrivate();
+
+    private AnimeETag() {
+    }
+
+    static String of(Anime anime) {
+        return "\"" + anime.getVersion() + "\"";
+    }
+
+    static String ofCollection(long version) {
+        return "\"" + BOOT + "-" + version + "\"";
+    }
+
+    // null significa qualquer versão (If-Match: *)
+    static Integer parseVersion(String ifMatch) {
+        String value = ifMatch.trim();
+        if (ANY.equals(value)) {
+            return null;
+        }
+        // ETags fracas nunca satisfazem If-Match, que exige comparação forte
+        if (value.length() > 2 && value.startsWith("\"") && value.endsWith("\"")) {
+            try {
+                return Integer.valueOf(value.substring(1, value.length() - 1));
+            } catch (NumberFormatException ignored) {
+                // cai no 412 abaixo
+            }
+        }
+        throw IF_MATCH_MISMATCH.exception();
+    }
+}
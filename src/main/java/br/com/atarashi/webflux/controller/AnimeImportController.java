@@ -0,0 +1,76 @@
+package br.com.atarashi.webflux.controller;
+
+import br.com.atarashi.webflux.domain.AnimeImportStatus;
+import br.com.atarashi.webflux.export.ExportFormat;
+import br.com.atarashi.webflux.service.AnimeImportService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@RequiredArgsConstructor
+@RestController
+@RequestMapping("animes/imports")
+@Slf4j
+@PreAuthorize("hasRole('ADMIN')")
+public class AnimeImportController {
+    private final AnimeImportService animeImportService;
+
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    @Operation(summary = "Create a CSV import and return its id; upload the CSV with PUT /animes/imports/{id}",
+            security = @SecurityRequirement(name = "Basic Authentication"),
+            tags = {"anime"})
+    public Mono<AnimeImportStatus> create() {
+        return animeImportService.create();
+    }
+
+    @PutMapping(path = "{id}", consumes = "text/csv")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Upload the CSV of an import with a name column; invalid rows go to the error report instead of failing the import",
+            security = @SecurityRequirement(name = "Basic Authentication"),
+            tags = {"anime"})
+    public Mono<AnimeImportStatus> importCsv(@PathVariable String id, @RequestBody Flux<DataBuffer> body) {
+        return animeImportService.importCsv(id, body);
+    }
+
+    @GetMapping
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "List recent CSV imports, newest first, with their progress",
+            security = @SecurityRequirement(name = "Basic Authentication"),
+            tags = {"anime"})
+    public Flux<AnimeImportStatus> listAll() {
+        return animeImportService.findAll();
+    }
+
+    @GetMapping(path = "{id}")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Progress of a CSV import, also while it runs",
+            security = @SecurityRequirement(name = "Basic Authentication"),
+            tags = {"anime"})
+    public Mono<AnimeImportStatus> findById(@PathVariable String id) {
+        return animeImportService.findById(id);
+    }
+
+    @GetMapping(path = "{id}/errors")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Download the rejected rows of a CSV import as CSV (line, error, name)",
+            security = @SecurityRequirement(name = "Basic Authentication"),
+            tags = {"anime"})
+    public Mono<ResponseEntity<Flux<DataBuffer>>> errorReport(@PathVariable String id, ServerHttpResponse response) {
+        return animeImportService.errorReport(id, response.bufferFactory())
+                .map(report -> ResponseEntity.ok()
+                        .contentType(ExportFormat.CSV.contentType(false))
+                        .header(HttpHeaders.CONTENT_DISPOSITION, ExportFormat.CSV.contentDisposition("anime-import-" + id + "-errors", false))
+                        .body(report));
+    }
+}
@@ -0,0 +1,38 @@
+package br.com.atarashi.webflux.controller;
+
+import br.com.atarashi.webflux.domain.AccessToken;
+import br.com.atarashi.webflux.security.JwtTokenService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.enums.SecuritySchemeType;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.security.SecurityScheme;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+@RequiredArgsConstructor
+@RestController
+@RequestMapping("auth")
+@SecurityScheme(
+        name = "Bearer Authentication",
+        type = SecuritySchemeType.HTTP,
+        scheme = "bearer",
+        bearerFormat = "JWT"
+)
+public class AuthController {
+    private final JwtTokenService jwtTokenService;
+
+    @PostMapping("token")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Issue a short-lived signed token for the authenticated user",
+            security = @SecurityRequirement(name = "Basic Authentication"),
+            tags = {"auth"})
+    public Mono<AccessToken> token(Authentication authentication) {
+        return jwtTokenService.issue(authentication);
+    }
+}
@@ -0,0 +1,151 @@
+package br.com.atarashi.webflux.controller;
+
+import br.com.atarashi.webflux.config.WebFluxConfig;
+import br.com.atarashi.webflux.domain.Gasto;
+import br.com.atarashi.webflux.domain.GastoTags;
+import br.com.atarashi.webflux.domain.GastoTotal;
+import br.com.atarashi.webflux.domain.GastoTotalsRebuild;
+import br.com.atarashi.webflux.export.ExportFormat;
+import br.com.atarashi.webflux.service.ExportService;
+import br.com.atarashi.webflux.service.GastoService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.validation.Valid;
+import java.time.LocalDate;
+
+@RequiredArgsConstructor
+@RestController
+@RequestMapping("gastos")
+@Slf4j
+public class GastoController {
+    private final GastoService gastoService;
+    private final ExportService exportService;
+
+    // períodos grandes devem ser pedidos como NDJSON: em JSON o Flux vira uma lista inteira antes de sair
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, WebFluxConfig.APPLICATION_NDJSON_VALUE})
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "List expenses with DATA in [from, to), oldest first; with tags=a,b only those tagged with all of them",
+            security = @SecurityRequirement(name = "Basic Authentication"),
+            tags = {"gasto"})
+    public Flux<Gasto> listByPeriod(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                    @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                    @RequestParam(required = false) String tags) {
+        return gastoService.findByPeriodAndTags(from, to, GastoTags.split(tags));
+    }
+
+    @GetMapping(path = "export")
+    @ResponseStatus(HttpStatus.OK)
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Export every expense as CSV or NDJSON (format=csv|ndjson), gzip-compressed with gzip=true",
+            security = @SecurityRequirement(name = "Basic Authentication"),
+            tags = {"gasto"})
+    public Mono<ResponseEntity<Flux<DataBuffer>>> export(@RequestParam(defaultValue = "csv") String format,
+                                                         @RequestParam(defaultValue = "false") boolean gzip,
+                                                         ServerHttpResponse response) {
+        return Mono.fromSupplier(() -> {
+            ExportFormat exportFormat = ExportFormat.of(format);
+            return ResponseEntity.ok()
+                    .contentType(exportFormat.contentType(gzip))
+                    .header(HttpHeaders.CONTENT_DISPOSITION, exportFormat.contentDisposition("gastos", gzip))
+                    .body(exportService.exportGastos(exportFormat, gzip, response.bufferFactory()));
+        });
+    }
+
+    @GetMapping(path = "{id}")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Find expense by id",
+            security = @SecurityRequirement(name = "Basic Authentication"),
+            tags = {"gasto"})
+    public Mono<Gasto> findById(@PathVariable long id) {
+        return gastoService.findById(id);
+    }
+
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    @Operation(summary = "Save expense",
+            security = @SecurityRequirement(name = "Basic Authentication"),
+            tags = {"gasto"})
+    public Mono<Gasto> save(@Valid @RequestBody Gasto gasto) {
+        return gastoService.save(gasto);
+    }
+
+    @PutMapping(path = "{id}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    @Operation(summary = "Update expense",
+            security = @SecurityRequirement(name = "Basic Authentication"),
+            tags = {"gasto"})
+    public Mono<Void> update(@PathVariable long id, @Valid @RequestBody Gasto gasto) {
+        return gastoService.update(gasto.withId(id));
+    }
+
+    @DeleteMapping(path = "{id}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    @Operation(summary = "Delete expense",
+            security = @SecurityRequirement(name = "Basic Authentication"),
+            tags = {"gasto"})
+    public Mono<Void> delete(@PathVariable long id) {
+        return gastoService.delete(id);
+    }
+
+    @GetMapping(path = "report/daily", produces = {MediaType.APPLICATION_JSON_VALUE, WebFluxConfig.APPLICATION_NDJSON_VALUE})
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Total and count of expenses per day in [from, to)",
+            security = @SecurityRequirement(name = "Basic Authentication"),
+            tags = {"gasto"})
+    public Flux<GastoTotal> totalsPerDay(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                         @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return gastoService.totalsPerDay(from, to);
+    }
+
+    @GetMapping(path = "report/monthly", produces = {MediaType.APPLICATION_JSON_VALUE, WebFluxConfig.APPLICATION_NDJSON_VALUE})
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Total and count of expenses per month in [from, to)",
+            security = @SecurityRequirement(name = "Basic Authentication"),
+            tags = {"gasto"})
+    public Flux<GastoTotal> totalsPerMonth(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                           @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return gastoService.totalsPerMonth(from, to);
+    }
+
+    @GetMapping(path = "report/tags", produces = {MediaType.APPLICATION_JSON_VALUE, WebFluxConfig.APPLICATION_NDJSON_VALUE})
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Total and count of expenses per tag in [from, to)",
+            security = @SecurityRequirement(name = "Basic Authentication"),
+            tags = {"gasto"})
+    public Flux<GastoTotal> totalsPerTag(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                         @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return gastoService.totalsPerTag(from, to);
+    }
+
+    @PostMapping(path = "report/rebuild")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    @Operation(summary = "Start recomputing the materialized expense totals and tag index from scratch; writes and reports answer 503 until it completes",
+            security = @SecurityRequirement(name = "Basic Authentication"),
+            tags = {"gasto"})
+    public Mono<GastoTotalsRebuild> rebuildTotals() {
+        return gastoService.rebuildTotals();
+    }
+
+    @GetMapping(path = "report/rebuild")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Progress of the last expense totals rebuild, also while it runs",
+            security = @SecurityRequirement(name = "Basic Authentication"),
+            tags = {"gasto"})
+    public Mono<GastoTotalsRebuild> findRebuild() {
+        return gastoService.findRebuild();
+    }
+}
@@ -0,0 +1,17 @@
+package br.com.atarashi.webflux.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class AccessToken {
+
+    private String accessToken;
+    private String tokenType;
+    private long expiresIn;
+}
@@ -2,6 +2,7 @@ package br.com.atarashi.webflux.domain;
 
 import lombok.*;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.relational.core.mapping.Table;
 
 import javax.validation.constraints.NotEmpty;
@@ -20,4 +21,6 @@ public class Anime {
     @NotNull
     @NotEmpty(message = "The name of this anime cannot be empty")
     private String name;
+    @Version
+    private Integer version;
 }
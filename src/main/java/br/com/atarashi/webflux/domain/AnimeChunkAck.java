@@ -0,0 +1,21 @@
+package br.com.atarashi.webflux.domain;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class AnimeChunkAck {
+
+    private long chunk;
+    private int saved;
+    private Integer firstId;
+    private Integer lastId;
+    private String error;
+}
@@ -0,0 +1,35 @@
+package br.com.atarashi.webflux.domain;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+// retrato de uma importação de CSV; PENDING até o upload começar, e enquanto ela roda os contadores só crescem
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class AnimeImportStatus {
+
+    private String id;
+    private State state;
+    private Instant createdAt;
+    private Instant startedAt;
+    private Instant finishedAt;
+    private long bytesRead;
+    private long rowsRead;
+    private long rowsSaved;
+    private long rowsInvalid;
+    // o relatório guarda só os primeiros erros; rowsInvalid conta todos
+    private boolean errorReportTruncated;
+    private String error;
+
+    public enum State {
+        PENDING, RUNNING, COMPLETED, FAILED
+    }
+}
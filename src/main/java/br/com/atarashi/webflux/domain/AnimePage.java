@@ -0,0 +1,18 @@
+package br.com.atarashi.webflux.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class AnimePage {
+
+    private List<Anime> content;
+    private Integer nextCursor;
+}
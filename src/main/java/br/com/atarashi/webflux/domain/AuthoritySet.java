@@ -0,0 +1,79 @@
+package br.com.atarashi.webflux.domain;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+
+public final class AuthoritySet extends AbstractSet<GrantedAuthority> {
+
+    private static final AuthoritySet EMPTY = new AuthoritySet(List.of());
+    // as strings vêm do banco: o cache para de crescer aqui e as combinações novas são lidas sem compartilhar
+    static final int MAX_INTERNED = 256;
+    private static final ConcurrentMap<String, AuthoritySet> INTERNED = new ConcurrentHashMap<>();
+
+    private final List<GrantedAuthority> authorities;
+    private final Set<String> names;
+
+    private AuthoritySet(List<GrantedAuthority> authorities) {
+        this.authorities = authorities;
+        this.names = authorities.stream()
+                .map(GrantedAuthority::getAuthority)
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    // usuários com a mesma string de permissões compartilham a mesma instância
+    public static AuthoritySet of(String authorities) {
+        if (authorities == null || authorities.isBlank()) {
+            return EMPTY;
+        }
+
+        AuthoritySet interned = INTERNED.get(authorities);
+        if (interned != null) {
+            return interned;
+        }
+        if (INTERNED.size() >= MAX_INTERNED) {
+            return parse(authorities);
+        }
+        return INTERNED.computeIfAbsent(authorities, AuthoritySet::parse);
+    }
+
+    static int internedCount() {
+        return INTERNED.size();
+    }
+
+    private static AuthoritySet parse(String authorities) {
+        return new AuthoritySet(Arrays.stream(authorities.split(","))
+                .map(String::trim)
+                .filter(authority -> !authority.isEmpty())
+                .distinct()
+                .map(SimpleGrantedAuthority::new)
+                .collect(Collectors.toUnmodifiableList()));
+    }
+
+    public boolean hasAuthority(String authority) {
+        return names.contains(authority);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof GrantedAuthority && hasAuthority(((GrantedAuthority) o).getAuthority());
+    }
+
+    @Override
+    public Iterator<GrantedAuthority> iterator() {
+        return authorities.iterator();
+    }
+
+    @Override
+    public int size() {
+        return authorities.size();
+    }
+}
@@ -5,14 +5,8 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.relational.core.mapping.Table;
-import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
-import java.util.Arrays;
-import java.util.Collection;
-import java.util.stream.Collectors;
-
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -27,10 +21,12 @@ public class DevDojoUser implements UserDetails {
     private String authorities;
 
     @Override
-    public Collection<? extends GrantedAuthority> getAuthorities() {
-        return Arrays.stream(authorities.split(","))
-                .map(SimpleGrantedAuthority::new)
-                .collect(Collectors.toList());
+    public AuthoritySet getAuthorities() {
+        return AuthoritySet.of(authorities);
+    }
+
+    public boolean hasRole(String role) {
+        return getAuthorities().hasAuthority("ROLE_" + role);
     }
 
     @Override
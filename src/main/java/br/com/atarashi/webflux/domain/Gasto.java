@@ -0,0 +1,32 @@
+package br.com.atarashi.webflux.domain;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@With
+@Table("gasto")
+public class Gasto {
+
+    @Id
+    private Long id;
+    @NotNull
+    @NotEmpty(message = "The name of this expense cannot be empty")
+    private String nome;
+    private String descricao;
+    @NotNull(message = "The date of this expense cannot be null")
+    private LocalDateTime data;
+    @NotNull(message = "The value of this expense cannot be null")
+    private BigDecimal valor;
+    // separadas por vírgula, ex. "mercado,casa"
+    private String tags;
+}
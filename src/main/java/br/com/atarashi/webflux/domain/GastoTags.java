@@ -0,0 +1,25 @@
+package br.com.atarashi.webflux.domain;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// GASTO.TAGS é texto livre separado por vírgulas; aqui vira uma lista sem espaços, repetições ou maiúsculas
+public final class GastoTags {
+
+    private GastoTags() {
+    }
+
+    public static List<String> split(String tags) {
+        List<String> result = new ArrayList<>();
+        if (tags == null) {
+            return result;
+        }
+        for (String tag : tags.split(",")) {
+            String trimmed = tag.trim().toLowerCase();
+            if (!trimmed.isEmpty() && !result.contains(trimmed)) {
+                result.add(trimmed);
+            }
+        }
+        return result;
+    }
+}
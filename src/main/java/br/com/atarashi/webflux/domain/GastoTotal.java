@@ -0,0 +1,20 @@
+package br.com.atarashi.webflux.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+// soma dos gastos de um período (2020-10-16, 2020-10) ou de uma tag
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class GastoTotal {
+
+    private String key;
+    private long count;
+    private BigDecimal total;
+}
@@ -0,0 +1,89 @@
+package br.com.atarashi.webflux.domain;
+
+import lombok.Getter;
+import lombok.Value;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Quanto cada linha das tabelas de totais precisa mudar por causa de um conjunto de gastos.
+// Um insert soma, um delete subtrai e um update faz os dois; o rebuild junta a tabela inteira.
+// As linhas ficam em ordem de chave: toda transação trava as linhas de total na mesma ordem.
+@Getter
+public class GastoTotalsDelta {
+
+    private final Map<LocalDate, Totals> days = new TreeMap<>();
+    private final Map<LocalDate, Totals> months = new TreeMap<>();
+    private final Map<TagDay, Totals> tagDays = new TreeMap<>();
+    private long rows;
+
+    public GastoTotalsDelta add(Gasto gasto) {
+        return apply(gasto, 1);
+    }
+
+    public GastoTotalsDelta remove(Gasto gasto) {
+        return apply(gasto, -1);
+    }
+
+    private GastoTotalsDelta apply(Gasto gasto, int sign) {
+        rows++;
+        if (gasto.getData() == null) {
+            return this;
+        }
+        LocalDate day = gasto.getData().toLocalDate();
+        BigDecimal valor = gasto.getValor() == null ? BigDecimal.ZERO : gasto.getValor();
+        BigDecimal signedValor = sign < 0 ? valor.negate() : valor;
+
+        days.computeIfAbsent(day, key -> new Totals()).add(sign, signedValor);
+        months.computeIfAbsent(day.withDayOfMonth(1), key -> new Totals()).add(sign, signedValor);
+        for (String tag : GastoTags.split(gasto.getTags())) {
+            tagDays.computeIfAbsent(new TagDay(tag, day), key -> new Totals()).add(sign, signedValor);
+        }
+        return this;
+    }
+
+    // o rebuild soma os blocos lidos em paralelo num delta só, gravado por um único escritor
+    public GastoTotalsDelta merge(GastoTotalsDelta other) {
+        rows += other.rows;
+        merge(days, other.days);
+        merge(months, other.months);
+        merge(tagDays, other.tagDays);
+        return this;
+    }
+
+    private static <K> void merge(Map<K, Totals> target, Map<K, Totals> source) {
+        source.forEach((key, totals) -> target.computeIfAbsent(key, k -> new Totals()).add(totals.count, totals.total));
+    }
+
+    @Getter
+    public static class Totals {
+        private long count;
+        private BigDecimal total = BigDecimal.ZERO;
+
+        private void add(long count, BigDecimal total) {
+            this.count += count;
+            this.total = this.total.add(total);
+        }
+
+        // um update que não muda dia, tag nem valor se anula e não precisa ir ao banco
+        public boolean isZero() {
+            return count == 0 && total.signum() == 0;
+        }
+    }
+
+    @Value
+    public static class TagDay implements Comparable<TagDay> {
+        private static final Comparator<TagDay> ORDER = Comparator.comparing(TagDay::getTag).thenComparing(TagDay::getDay);
+
+        String tag;
+        LocalDate day;
+
+        @Override
+        public int compareTo(TagDay other) {
+            return ORDER.compare(this, other);
+        }
+    }
+}
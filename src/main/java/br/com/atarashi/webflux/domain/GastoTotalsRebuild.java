@@ -0,0 +1,29 @@
+package br.com.atarashi.webflux.domain;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+// retrato do último rebuild dos totais; enquanto ele roda os contadores só crescem
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class GastoTotalsRebuild {
+
+    private State state;
+    private Instant startedAt;
+    private Instant finishedAt;
+    private long chunks;
+    private long rows;
+    private String error;
+
+    public enum State {
+        RUNNING, COMPLETED, FAILED
+    }
+}
@@ -11,13 +11,15 @@ import java.util.Map;
 @Component
 public class CustomAttributes extends DefaultErrorAttributes {
 
+    static final String DEVELOPER_MESSAGE = "A ResponseStatusException Happened";
+
     public Map<String, Object> getErrorAttributes(ServerRequest request, ErrorAttributeOptions options) {
         Map<String, Object> errorAttributesMap = super.getErrorAttributes(request, options);
         Throwable throwable = getError(request);
         if (throwable instanceof ResponseStatusException) {
             ResponseStatusException ex = (ResponseStatusException) throwable;
             errorAttributesMap.put("message", ex.getMessage());
-            errorAttributesMap.put("developerMessage", "A ResponseStatusException Happened");
+            errorAttributesMap.put("developerMessage", DEVELOPER_MESSAGE);
         }
 
         return errorAttributesMap;
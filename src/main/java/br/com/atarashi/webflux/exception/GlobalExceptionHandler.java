@@ -1,5 +1,8 @@
 package br.com.atarashi.webflux.exception;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.web.ResourceProperties;
 import org.springframework.boot.autoconfigure.web.reactive.error.AbstractErrorWebExceptionHandler;
 import org.springframework.boot.web.error.ErrorAttributeOptions;
@@ -12,18 +15,45 @@ import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.server.*;
+import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
 
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 @Component
 @Order(-2)
 public class GlobalExceptionHandler extends AbstractErrorWebExceptionHandler {
 
-    public GlobalExceptionHandler(ErrorAttributes errorAttributes, ResourceProperties resourceProperties, ApplicationContext applicationContext, ServerCodecConfigurer codecConfigurer) {
+    private final MeterRegistry meterRegistry;
+    private final boolean lightweightErrors;
+    private final ConcurrentMap<PrebuiltError, Counter> prebuiltErrorCounters = new ConcurrentHashMap<>();
+
+    public GlobalExceptionHandler(ErrorAttributes errorAttributes, ResourceProperties resourceProperties, ApplicationContext applicationContext, ServerCodecConfigurer codecConfigurer,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${error.lightweight.enabled:true}") boolean lightweightErrors) {
         super(errorAttributes, resourceProperties, applicationContext);
         this.setMessageWriters(codecConfigurer.getWriters());
+        this.meterRegistry = meterRegistry;
+        this.lightweightErrors = lightweightErrors;
+    }
+
+    // erros conhecidos pulam o DefaultErrorAttributes e o codec JSON: o corpo já vem pronto da exceção
+    @Override
+    public Mono<Void> handle(ServerWebExchange exchange, Throwable throwable) {
+        if (lightweightErrors && throwable instanceof PrebuiltResponseStatusException
+                && !exchange.getResponse().isCommitted()
+                && !isTraceEnabled(exchange.getRequest().getURI().getQuery())) {
+            return writePrebuiltErrorResponse(exchange, (PrebuiltResponseStatusException) throwable);
+        }
+        return super.handle(exchange, throwable);
+    }
+
+    private Mono<Void> writePrebuiltErrorResponse(ServerWebExchange exchange, PrebuiltResponseStatusException ex) {
+        prebuiltErrorCounters.computeIfAbsent(ex.getError(), error -> errorCounter(ex)).increment();
+        return ex.writeTo(exchange);
     }
 
     @Override
@@ -39,11 +69,24 @@ public class GlobalExceptionHandler extends AbstractErrorWebExceptionHandler {
         Map<String, Object> errorAttributesMap = getErrorAttributes(request, errorAttributeOptions);
         int status = (int) Optional.ofNullable(errorAttributesMap.get("status")).orElse(500);
 
+        errorCounter(status, getError(request)).increment();
+
         return ServerResponse.status(status)
                 .contentType(MediaType.APPLICATION_JSON)
                 .body(BodyInserters.fromValue(errorAttributesMap));
     }
 
+    private Counter errorCounter(PrebuiltResponseStatusException ex) {
+        return errorCounter(ex.getStatus().value(), ex);
+    }
+
+    private Counter errorCounter(int status, Throwable error) {
+        return Counter.builder("http.server.errors")
+                .tag("status", String.valueOf(status))
+                .tag("exception", error.getClass().getSimpleName())
+                .register(meterRegistry);
+    }
+
     private boolean isTraceEnabled(String query) {
         return !StringUtils.isEmpty(query) && query.contains("trace=true");
     }
@@ -0,0 +1,75 @@
+package br.com.atarashi.webflux.exception;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Erro conhecido, criado uma única vez por status e motivo: guarda o corpo JSON já serializado, faltando só
+// o path, que é inserido na hora de escrever a resposta. A exceção é criada a cada erro com exception(),
+// porque cada checkpoint do Reactor anexa um suppressed ao Throwable que passa por ele.
+public final class PrebuiltError {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final byte[] PATH_PREFIX = "{\"path\":\"".getBytes(StandardCharsets.UTF_8);
+
+    private final HttpStatus status;
+    private final String reason;
+    // ,"status":404,"error":"Not Found","message":"...","developerMessage":"..."}
+    private final byte[] bodySuffix;
+
+    public PrebuiltError(HttpStatus status, String reason) {
+        this.status = status;
+        this.reason = reason;
+        Map<String, Object> attributes = new LinkedHashMap<>();
+        attributes.put("status", status.value());
+        attributes.put("error", status.getReasonPhrase());
+        attributes.put("message", exception().getMessage());
+        attributes.put("developerMessage", CustomAttributes.DEVELOPER_MESSAGE);
+        try {
+            byte[] json = OBJECT_MAPPER.writeValueAsBytes(attributes);
+            bodySuffix = new byte[json.length + 1];
+            bodySuffix[0] = '"';
+            bodySuffix[1] = ',';
+            System.arraycopy(json, 1, bodySuffix, 2, json.length - 1);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public HttpStatus getStatus() {
+        return status;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    public PrebuiltResponseStatusException exception() {
+        return new PrebuiltResponseStatusException(this);
+    }
+
+    public Mono<Void> writeTo(ServerWebExchange exchange) {
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(status);
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        return response.writeWith(Mono.fromSupplier(() ->
+                writeBody(exchange.getRequest().getPath().value(), response.bufferFactory())));
+    }
+
+    public DataBuffer writeBody(String path, DataBufferFactory bufferFactory) {
+        byte[] quotedPath = JsonStringEncoder.getInstance().quoteAsUTF8(path);
+        DataBuffer buffer = bufferFactory.allocateBuffer(PATH_PREFIX.length + quotedPath.length + bodySuffix.length);
+        return buffer.write(PATH_PREFIX).write(quotedPath).write(bodySuffix);
+    }
+}
@@ -0,0 +1,29 @@
+package br.com.atarashi.webflux.exception;
+
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+// Uma instância por erro, sem stack trace; o corpo da resposta vem pronto do PrebuiltError que a criou.
+public class PrebuiltResponseStatusException extends ResponseStatusException {
+
+    private final PrebuiltError error;
+
+    PrebuiltResponseStatusException(PrebuiltError error) {
+        super(error.getStatus(), error.getReason());
+        this.error = error;
+    }
+
+    public PrebuiltError getError() {
+        return error;
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+
+    public Mono<Void> writeTo(ServerWebExchange exchange) {
+        return error.writeTo(exchange);
+    }
+}
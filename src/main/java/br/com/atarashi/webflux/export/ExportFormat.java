@@ -0,0 +1,50 @@
+package br.com.atarashi.webflux.export;
+
+import br.com.atarashi.webflux.config.WebFluxConfig;
+import br.com.atarashi.webflux.exception.PrebuiltError;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+
+import java.nio.charset.StandardCharsets;
+
+public enum ExportFormat {
+    // RFC 4180: cabeçalho na primeira linha, CRLF, aspas só nos campos que precisam
+    CSV("csv", new MediaType("text", "csv", StandardCharsets.UTF_8)),
+    // um objeto JSON por linha, com as mesmas chaves da API
+    NDJSON("ndjson", WebFluxConfig.APPLICATION_NDJSON);
+
+    private static final MediaType GZIP = new MediaType("application", "gzip");
+
+    private static final PrebuiltError INVALID_FORMAT =
+            new PrebuiltError(HttpStatus.BAD_REQUEST, "Export format must be csv or ndjson");
+
+    private final String extension;
+    private final MediaType mediaType;
+
+    ExportFormat(String extension, MediaType mediaType) {
+        this.extension = extension;
+        this.mediaType = mediaType;
+    }
+
+    public static ExportFormat of(String format) {
+        for (ExportFormat value : values()) {
+            if (value.extension.equalsIgnoreCase(format)) {
+                return value;
+            }
+        }
+        throw INVALID_FORMAT.exception();
+    }
+
+    // comprimido o arquivo é servido como .gz, sem Content-Encoding: o cliente guarda o que recebeu
+    public MediaType contentType(boolean gzip) {
+        return gzip ? GZIP : mediaType;
+    }
+
+    public String contentDisposition(String name, boolean gzip) {
+        return ContentDisposition.builder("attachment")
+                .filename(name + "." + extension + (gzip ? ".gz" : ""))
+                .build()
+                .toString();
+    }
+}
@@ -0,0 +1,329 @@
+package br.com.atarashi.webflux.export;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+// Escreve linhas como CSV ou NDJSON direto em DataBuffers do pool, em blocos de pelo menos chunkSize bytes.
+// Os campos são codificados em UTF-8 num array de rascunho reaproveitado, que só é copiado para o buffer
+// (ou para o gzip) quando enche; só decimais e datas passam por uma String.
+// Os métodos são synchronized porque o cancelamento chega por outra thread enquanto uma linha é escrita.
+final class ExportWriter {
+
+    private static final int SCRATCH_SIZE = 8192;
+    // o maior trecho escrito de uma vez: um \u00XX
+    private static final int MAX_ENCODED_CHAR = 6;
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.US_ASCII);
+
+    private final DataBufferFactory bufferFactory;
+    private final ExportFormat format;
+    private final int chunkSize;
+    // NDJSON: {"id": para a primeira coluna e ,"name": para as outras, codificados uma vez só
+    private final byte[][] keys;
+    private final byte[] scratch = new byte[SCRATCH_SIZE];
+    private final StringBuilder text = new StringBuilder();
+    private final GZIPOutputStream gzip;
+    private final OutputStream out;
+
+    private int position;
+    private DataBuffer current;
+    private boolean closed;
+
+    ExportWriter(DataBufferFactory bufferFactory, ExportFormat format, List<String> columns, boolean compress, int chunkSize) {
+        this.bufferFactory = bufferFactory;
+        this.format = format;
+        this.chunkSize = chunkSize;
+        this.current = allocate();
+        OutputStream sink = new CurrentBufferSink();
+        try {
+            this.gzip = compress ? new GZIPOutputStream(sink, SCRATCH_SIZE) : null;
+        } catch (IOException e) {
+            DataBufferUtils.release(current);
+            throw new UncheckedIOException(e);
+        }
+        this.out = gzip != null ? gzip : sink;
+
+        if (format == ExportFormat.CSV) {
+            this.keys = null;
+            for (int i = 0; i < columns.size(); i++) {
+                if (i > 0) {
+                    put((byte) ',');
+                }
+                putText(columns.get(i), false);
+            }
+            putLineEnd();
+        } else {
+            this.keys = new byte[columns.size()][];
+            for (int i = 0; i < columns.size(); i++) {
+                keys[i] = ((i == 0 ? "{\"" : ",\"") + columns.get(i) + "\":").getBytes(StandardCharsets.UTF_8);
+            }
+        }
+    }
+
+    // devolve o bloco atual quando ele passou de chunkSize, senão null
+    synchronized DataBuffer write(Object[] row) {
+        if (closed) {
+            return null;
+        }
+        if (format == ExportFormat.CSV) {
+            for (int i = 0; i < row.length; i++) {
+                if (i > 0) {
+                    put((byte) ',');
+                }
+                putCsv(row[i]);
+            }
+            putLineEnd();
+        } else {
+            for (int i = 0; i < row.length; i++) {
+                putAll(keys[i]);
+                putJson(row[i]);
+            }
+            put((byte) '}');
+            put((byte) '\n');
+        }
+        if (current.readableByteCount() < chunkSize) {
+            return null;
+        }
+        DataBuffer full = current;
+        current = allocate();
+        return full;
+    }
+
+    // o que sobrou no rascunho e o final do gzip; null se não sobrou nada
+    synchronized DataBuffer finish() {
+        if (closed) {
+            return null;
+        }
+        drain();
+        if (gzip != null) {
+            try {
+                gzip.finish();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        DataBuffer last = current;
+        current = null;
+        if (last.readableByteCount() == 0) {
+            DataBufferUtils.release(last);
+            return null;
+        }
+        return last;
+    }
+
+    // libera o bloco que não chegou a sair e o Deflater nativo, tanto no fim quanto num cancelamento
+    synchronized void close() {
+        closed = true;
+        if (current != null) {
+            DataBufferUtils.release(current);
+            current = null;
+        }
+        if (gzip != null) {
+            try {
+                gzip.close();
+            } catch (IOException ignored) {
+                // sem buffer atual a saída é descartada; o close só encerra o Deflater
+            }
+        }
+    }
+
+    private DataBuffer allocate() {
+        return bufferFactory.allocateBuffer(chunkSize + SCRATCH_SIZE);
+    }
+
+    private void putLineEnd() {
+        put((byte) '\r');
+        put((byte) '\n');
+    }
+
+    private void putCsv(Object value) {
+        if (value == null) {
+            return;
+        }
+        if (value instanceof Integer || value instanceof Long || value instanceof Short) {
+            putLong(((Number) value).longValue());
+        } else if (value instanceof String) {
+            putCsvText((String) value);
+        } else {
+            putCsvText(plain(value));
+        }
+    }
+
+    private void putJson(Object value) {
+        if (value == null) {
+            putAll(NULL);
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short) {
+            putLong(((Number) value).longValue());
+        } else if (value instanceof BigDecimal || value instanceof Boolean) {
+            putText(plain(value), false);
+        } else {
+            put((byte) '"');
+            putText(value instanceof String ? (String) value : plain(value), true);
+            put((byte) '"');
+        }
+    }
+
+    // mesmo formato que o Jackson usa na API para datas; reaproveita o StringBuilder
+    private CharSequence plain(Object value) {
+        text.setLength(0);
+        if (value instanceof LocalDateTime) {
+            DateTimeFormatter.ISO_LOCAL_DATE_TIME.formatTo((LocalDateTime) value, text);
+        } else if (value instanceof LocalDate) {
+            DateTimeFormatter.ISO_LOCAL_DATE.formatTo((LocalDate) value, text);
+        } else if (value instanceof BigDecimal) {
+            text.append(((BigDecimal) value).toPlainString());
+        } else {
+            text.append(value);
+        }
+        return text;
+    }
+
+    private void putCsvText(CharSequence value) {
+        boolean quoted = false;
+        for (int i = 0; i < value.length() && !quoted; i++) {
+            char c = value.charAt(i);
+            quoted = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (quoted) {
+            put((byte) '"');
+        }
+        putText(value, false);
+        if (quoted) {
+            put((byte) '"');
+        }
+    }
+
+    // UTF-8 à mão; em JSON escapa aspas, barra e controles, em CSV dobra as aspas
+    private void putText(CharSequence value, boolean json) {
+        for (int i = 0, length = value.length(); i < length; i++) {
+            char c = value.charAt(i);
+            ensureRoom(MAX_ENCODED_CHAR);
+            if (c < 0x80) {
+                if (c == '"') {
+                    scratch[position++] = json ? (byte) '\\' : (byte) '"';
+                    scratch[position++] = '"';
+                } else if (json && c == '\\') {
+                    scratch[position++] = '\\';
+                    scratch[position++] = '\\';
+                } else if (json && c < 0x20) {
+                    putControl(c);
+                } else {
+                    scratch[position++] = (byte) c;
+                }
+            } else if (c < 0x800) {
+                scratch[position++] = (byte) (0xC0 | (c >> 6));
+                scratch[position++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                scratch[position++] = (byte) (0xF0 | (codePoint >> 18));
+                scratch[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                scratch[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                scratch[position++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                scratch[position++] = '?';
+            } else {
+                scratch[position++] = (byte) (0xE0 | (c >> 12));
+                scratch[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                scratch[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    private void putControl(char c) {
+        scratch[position++] = '\\';
+        if (c == '\n') {
+            scratch[position++] = 'n';
+        } else if (c == '\r') {
+            scratch[position++] = 'r';
+        } else if (c == '\t') {
+            scratch[position++] = 't';
+        } else {
+            scratch[position++] = 'u';
+            scratch[position++] = '0';
+            scratch[position++] = '0';
+            scratch[position++] = HEX[c >> 4];
+            scratch[position++] = HEX[c & 0xF];
+        }
+    }
+
+    private void putLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            putText(Long.toString(value), false);
+            return;
+        }
+        ensureRoom(20);
+        if (value < 0) {
+            scratch[position++] = '-';
+            value = -value;
+        }
+        int start = position;
+        do {
+            scratch[position++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        for (int left = start, right = position - 1; left < right; left++, right--) {
+            byte digit = scratch[left];
+            scratch[left] = scratch[right];
+            scratch[right] = digit;
+        }
+    }
+
+    private void putAll(byte[] bytes) {
+        ensureRoom(bytes.length);
+        System.arraycopy(bytes, 0, scratch, position, bytes.length);
+        position += bytes.length;
+    }
+
+    private void put(byte b) {
+        ensureRoom(1);
+        scratch[position++] = b;
+    }
+
+    private void ensureRoom(int bytes) {
+        if (position + bytes > SCRATCH_SIZE) {
+            drain();
+        }
+    }
+
+    private void drain() {
+        if (position == 0) {
+            return;
+        }
+        try {
+            out.write(scratch, 0, position);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        position = 0;
+    }
+
+    // destino do rascunho ou do gzip: sempre o bloco atual, que é trocado quando sai
+    private final class CurrentBufferSink extends OutputStream {
+
+        @Override
+        public void write(int b) {
+            if (current != null) {
+                current.write((byte) b);
+            }
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            if (current != null) {
+                current.write(bytes, offset, length);
+            }
+        }
+    }
+}
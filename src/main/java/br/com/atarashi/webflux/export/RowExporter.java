@@ -0,0 +1,45 @@
+package br.com.atarashi.webflux.export;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+// Transforma um stream de linhas em blocos de bytes prontos para o socket. O heap usado não depende
+// do tamanho da exportação: no máximo ROW_PREFETCH linhas e CHUNK_PREFETCH blocos ficam em memória,
+// e o resto espera a demanda do cliente.
+@Component
+public class RowExporter {
+
+    private static final int ROW_PREFETCH = 256;
+    private static final int CHUNK_PREFETCH = 4;
+
+    private final int chunkSize;
+
+    public RowExporter(@Value("${export.chunk-size:32KB}") DataSize chunkSize) {
+        this.chunkSize = (int) chunkSize.toBytes();
+    }
+
+    // usar o bufferFactory da resposta: no Netty os blocos saem do pool e vão para o socket sem cópia
+    public Flux<DataBuffer> export(Flux<Object[]> rows, List<String> columns, ExportFormat format, boolean gzip,
+                                   DataBufferFactory bufferFactory) {
+        return Flux.using(() -> new ExportWriter(bufferFactory, format, columns, gzip, chunkSize),
+                writer -> rows.limitRate(ROW_PREFETCH)
+                        .<DataBuffer>handle((row, sink) -> {
+                            DataBuffer chunk = writer.write(row);
+                            if (chunk != null) {
+                                sink.next(chunk);
+                            }
+                        })
+                        .concatWith(Mono.fromSupplier(writer::finish)),
+                ExportWriter::close)
+                .limitRate(CHUNK_PREFETCH)
+                .doOnDiscard(DataBuffer.class, DataBufferUtils::release);
+    }
+}
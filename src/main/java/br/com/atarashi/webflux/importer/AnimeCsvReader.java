@@ -0,0 +1,89 @@
+package br.com.atarashi.webflux.importer;
+
+import br.com.atarashi.webflux.domain.Anime;
+import br.com.atarashi.webflux.exception.PrebuiltError;
+import br.com.atarashi.webflux.service.AnimeService;
+import lombok.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Lê um CSV de animes com cabeçalho. Só a coluna name é usada, as outras são ignoradas: o CSV de
+// GET /animes/export volta como está. O cabeçalho é lido em sequência junto com o parser;
+// validate pode ser chamado em paralelo, porque só lê o cabeçalho, que não muda mais depois do primeiro registro.
+public final class AnimeCsvReader {
+
+    private static final PrebuiltError MISSING_NAME_COLUMN =
+            new PrebuiltError(HttpStatus.BAD_REQUEST, "CSV header must have a name column");
+
+    private static final String NAME = "name";
+    private static final String BYTE_ORDER_MARK = "\uFEFF";
+
+    private final CsvParser parser;
+    private volatile int nameColumn = -1;
+    private volatile int columns;
+
+    public AnimeCsvReader(int maxRecordLength) {
+        this.parser = new CsvParser(maxRecordLength);
+    }
+
+    public List<CsvRecord> read(DataBuffer buffer) {
+        return withoutHeader(parser.feed(buffer));
+    }
+
+    public List<CsvRecord> finish() {
+        return withoutHeader(parser.finish());
+    }
+
+    private List<CsvRecord> withoutHeader(List<CsvRecord> records) {
+        if (nameColumn >= 0 || records.isEmpty()) {
+            return records;
+        }
+        List<String> header = records.get(0).getFields();
+        for (int i = 0; i < header.size(); i++) {
+            String column = i == 0 && header.get(i).startsWith(BYTE_ORDER_MARK) ? header.get(i).substring(1) : header.get(i);
+            if (NAME.equalsIgnoreCase(column.trim())) {
+                columns = header.size();
+                nameColumn = i;
+                return records.subList(1, records.size());
+            }
+        }
+        throw MISSING_NAME_COLUMN.exception();
+    }
+
+    // mesma regra de POST /animes/batch, mas a linha inválida vira um erro no relatório em vez de derrubar tudo
+    public Rows validate(List<CsvRecord> records) {
+        List<Anime> animes = new ArrayList<>(records.size());
+        List<RowError> errors = new ArrayList<>();
+        for (CsvRecord record : records) {
+            List<String> fields = record.getFields();
+            if (fields.size() != columns) {
+                errors.add(new RowError(record.getLine(), "Expected " + columns + " fields but found " + fields.size(),
+                        fields.size() > nameColumn ? fields.get(nameColumn) : null));
+                continue;
+            }
+            String name = fields.get(nameColumn);
+            if (!AnimeService.isValidName(name)) {
+                errors.add(new RowError(record.getLine(), AnimeService.INVALID_NAME_REASON, name));
+                continue;
+            }
+            animes.add(Anime.builder().name(name).build());
+        }
+        return new Rows(animes, errors);
+    }
+
+    @Value
+    public static class Rows {
+        List<Anime> animes;
+        List<RowError> errors;
+    }
+
+    @Value
+    public static class RowError {
+        long line;
+        String error;
+        String name;
+    }
+}
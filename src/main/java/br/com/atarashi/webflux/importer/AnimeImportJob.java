@@ -0,0 +1,122 @@
+package br.com.atarashi.webflux.importer;
+
+import br.com.atarashi.webflux.domain.AnimeImportStatus;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Progresso de uma importação. Só o pipeline da importação escreve, mas o status pode ser lido
+// a qualquer momento por outra requisição, então tudo aqui é atômico ou volátil.
+public final class AnimeImportJob {
+
+    private final String id;
+    private final int maxErrors;
+    private final Instant createdAt = Instant.now();
+    private final AtomicLong bytesRead = new AtomicLong();
+    private final AtomicLong rowsRead = new AtomicLong();
+    private final AtomicLong rowsSaved = new AtomicLong();
+    private final AtomicLong rowsInvalid = new AtomicLong();
+    private final Queue<AnimeCsvReader.RowError> errors = new ConcurrentLinkedQueue<>();
+
+    private volatile AnimeImportStatus.State state = AnimeImportStatus.State.PENDING;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile String error;
+
+    public AnimeImportJob(String id, int maxErrors) {
+        this.id = id;
+        this.maxErrors = maxErrors;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    // só o primeiro upload roda; os outros recebem false
+    public synchronized boolean start() {
+        if (state != AnimeImportStatus.State.PENDING) {
+            return false;
+        }
+        startedAt = Instant.now();
+        state = AnimeImportStatus.State.RUNNING;
+        return true;
+    }
+
+    // importação criada que nunca recebeu o CSV; falha se o upload não começou antes do prazo
+    public synchronized boolean expire(Instant deadline) {
+        if (state != AnimeImportStatus.State.PENDING || createdAt.isAfter(deadline)) {
+            return false;
+        }
+        error = "Import expired before its CSV was uploaded";
+        finishedAt = Instant.now();
+        state = AnimeImportStatus.State.FAILED;
+        return true;
+    }
+
+    public void addBytesRead(long bytes) {
+        bytesRead.addAndGet(bytes);
+    }
+
+    public void addRowsRead(long rows) {
+        rowsRead.addAndGet(rows);
+    }
+
+    public void addRowsSaved(long rows) {
+        rowsSaved.addAndGet(rows);
+    }
+
+    public void addErrors(List<AnimeCsvReader.RowError> rowErrors) {
+        for (AnimeCsvReader.RowError rowError : rowErrors) {
+            if (rowsInvalid.incrementAndGet() <= maxErrors) {
+                errors.add(rowError);
+            }
+        }
+    }
+
+    public List<AnimeCsvReader.RowError> getErrors() {
+        return new ArrayList<>(errors);
+    }
+
+    public AnimeImportStatus complete() {
+        finish(AnimeImportStatus.State.COMPLETED, null);
+        return snapshot();
+    }
+
+    public void fail(String reason) {
+        finish(AnimeImportStatus.State.FAILED, reason);
+    }
+
+    // o primeiro desfecho vale: um cancelamento depois de um erro não apaga o motivo
+    private synchronized void finish(AnimeImportStatus.State finalState, String reason) {
+        if (state != AnimeImportStatus.State.RUNNING) {
+            return;
+        }
+        error = reason;
+        finishedAt = Instant.now();
+        state = finalState;
+    }
+
+    public AnimeImportStatus snapshot() {
+        return AnimeImportStatus.builder()
+                .id(id)
+                .state(state)
+                .createdAt(createdAt)
+                .startedAt(startedAt)
+                .finishedAt(finishedAt)
+                .bytesRead(bytesRead.get())
+                .rowsRead(rowsRead.get())
+                .rowsSaved(rowsSaved.get())
+                .rowsInvalid(rowsInvalid.get())
+                .errorReportTruncated(rowsInvalid.get() > maxErrors)
+                .error(error)
+                .build();
+    }
+}
@@ -0,0 +1,160 @@
+package br.com.atarashi.webflux.importer;
+
+import br.com.atarashi.webflux.exception.PrebuiltError;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Parser de CSV (RFC 4180) alimentado buffer a buffer: o estado fica entre uma chamada e outra, então
+// registros, campos entre aspas e caracteres UTF-8 podem ser cortados em qualquer ponto do upload.
+// Separadores, aspas e quebras de linha são ASCII e nunca aparecem dentro de um caractere multibyte,
+// por isso o parser trabalha em bytes e só decodifica o campo quando ele termina.
+// Não é thread-safe: cada upload tem o seu, chamado em sequência.
+public final class CsvParser {
+
+    private static final PrebuiltError RECORD_TOO_LONG =
+            new PrebuiltError(HttpStatus.BAD_REQUEST, "CSV record is too long");
+    private static final PrebuiltError UNTERMINATED_QUOTE =
+            new PrebuiltError(HttpStatus.BAD_REQUEST, "CSV ends inside a quoted field");
+
+    private static final int READ_SIZE = 8192;
+
+    private final int maxRecordLength;
+    private final byte[] chunk = new byte[READ_SIZE];
+    private final List<String> fields = new ArrayList<>();
+
+    private byte[] field = new byte[256];
+    private int fieldLength;
+    private int recordLength;
+    private long line = 1;
+    private long recordLine = 1;
+    private boolean inQuotes;
+    private boolean quoteInQuotes;
+    private boolean skipLineFeed;
+
+    public CsvParser(int maxRecordLength) {
+        this.maxRecordLength = maxRecordLength;
+    }
+
+    // os registros que terminaram dentro deste buffer; o buffer é liberado
+    public List<CsvRecord> feed(DataBuffer buffer) {
+        List<CsvRecord> records = new ArrayList<>();
+        try {
+            while (buffer.readableByteCount() > 0) {
+                int length = Math.min(buffer.readableByteCount(), READ_SIZE);
+                buffer.read(chunk, 0, length);
+                for (int i = 0; i < length; i++) {
+                    accept(chunk[i], records);
+                }
+            }
+        } finally {
+            DataBufferUtils.release(buffer);
+        }
+        return records;
+    }
+
+    // o último registro, quando o arquivo não termina com quebra de linha
+    public List<CsvRecord> finish() {
+        if (inQuotes && !quoteInQuotes) {
+            throw UNTERMINATED_QUOTE.exception();
+        }
+        List<CsvRecord> records = new ArrayList<>(1);
+        if (recordLength > 0) {
+            endRecord(records);
+        }
+        return records;
+    }
+
+    private void accept(byte b, List<CsvRecord> records) {
+        if (inQuotes) {
+            if (!quoteInQuotes) {
+                if (b == '"') {
+                    quoteInQuotes = true;
+                } else {
+                    if (b == '\n') {
+                        line++;
+                    }
+                    append(b);
+                }
+                return;
+            }
+            // aspas seguidas de aspas são uma aspa literal; seguidas de outra coisa fecham o campo
+            quoteInQuotes = false;
+            if (b == '"') {
+                append(b);
+                return;
+            }
+            inQuotes = false;
+        }
+
+        if (skipLineFeed) {
+            skipLineFeed = false;
+            if (b == '\n') {
+                return;
+            }
+        }
+        switch (b) {
+            case ',':
+                count();
+                endField();
+                break;
+            case '\r':
+                skipLineFeed = true;
+                endLine(records);
+                break;
+            case '\n':
+                endLine(records);
+                break;
+            case '"':
+                if (fieldLength == 0) {
+                    count();
+                    inQuotes = true;
+                } else {
+                    append(b);
+                }
+                break;
+            default:
+                append(b);
+        }
+    }
+
+    private void endLine(List<CsvRecord> records) {
+        // linhas em branco não são registros
+        if (recordLength > 0) {
+            endRecord(records);
+        }
+        line++;
+        recordLine = line;
+    }
+
+    private void endRecord(List<CsvRecord> records) {
+        endField();
+        records.add(new CsvRecord(recordLine, List.copyOf(fields)));
+        fields.clear();
+        recordLength = 0;
+    }
+
+    private void endField() {
+        fields.add(new String(field, 0, fieldLength, StandardCharsets.UTF_8));
+        fieldLength = 0;
+    }
+
+    private void append(byte b) {
+        count();
+        if (fieldLength == field.length) {
+            field = Arrays.copyOf(field, field.length * 2);
+        }
+        field[fieldLength++] = b;
+    }
+
+    private void count() {
+        if (++recordLength > maxRecordLength) {
+            throw RECORD_TOO_LONG.exception();
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package br.com.atarashi.webflux.importer;
+
+import lombok.Value;
+
+import java.util.List;
+
+// um registro do CSV e a linha do arquivo onde ele começa (um campo entre aspas pode ocupar várias)
+@Value
+public class CsvRecord {
+    long line;
+    List<String> fields;
+}
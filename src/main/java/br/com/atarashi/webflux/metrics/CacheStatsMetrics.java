@@ -0,0 +1,35 @@
+package br.com.atarashi.webflux.metrics;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+
+import java.util.function.Supplier;
+
+// mesmos nomes do CaffeineCacheMetrics do Micrometer, lidos do CacheStats que cada cache já expõe
+@RequiredArgsConstructor
+public class CacheStatsMetrics implements MeterBinder {
+
+    private final String cacheName;
+    private final Supplier<CacheStats> stats;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("cache.gets", stats, s -> s.get().hitCount())
+                .tag("cache", cacheName)
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", stats, s -> s.get().missCount())
+                .tag("cache", cacheName)
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("cache.evictions", stats, s -> s.get().evictionCount())
+                .tag("cache", cacheName)
+                .register(registry);
+        FunctionCounter.builder("cache.load.failures", stats, s -> s.get().loadFailureCount())
+                .tag("cache", cacheName)
+                .register(registry);
+    }
+}
@@ -0,0 +1,93 @@
+package br.com.atarashi.webflux.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+// mede do subscribe até o término, que é quando o trabalho de um Mono/Flux realmente acontece
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class ReactiveTimingAspect {
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    @Around("within(br.com.atarashi.webflux.service..*) && execution(public * *(..))")
+    public Object timeService(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time("service.calls", "service", joinPoint.getSignature().getDeclaringType().getSimpleName(), joinPoint);
+    }
+
+    @Around("bean(animeRepository)")
+    public Object timeAnimeRepository(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time("repository.queries", "repository", "AnimeRepository", joinPoint);
+    }
+
+    @Around("bean(devDojoUserRepository)")
+    public Object timeDevDojoUserRepository(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time("repository.queries", "repository", "DevDojoUserRepository", joinPoint);
+    }
+
+    private Object time(String name, String typeTag, String type, ProceedingJoinPoint joinPoint) throws Throwable {
+        Object result = joinPoint.proceed();
+        String method = joinPoint.getSignature().getName();
+
+        if (result instanceof Mono) {
+            // um Mono costuma ser cancelado logo depois do valor, então o primeiro sinal é o que vale
+            Mono<?> mono = (Mono<?>) result;
+            return Mono.defer(() -> {
+                Timer.Sample sample = Timer.start(meterRegistry);
+                AtomicBoolean stopped = new AtomicBoolean();
+                Consumer<SignalType> stop = signal -> {
+                    if (stopped.compareAndSet(false, true)) {
+                        sample.stop(timer(name, typeTag, type, method, signal));
+                    }
+                };
+                return mono.doOnSuccess(value -> stop.accept(SignalType.ON_COMPLETE))
+                        .doOnError(e -> stop.accept(SignalType.ON_ERROR))
+                        .doOnCancel(() -> stop.accept(SignalType.CANCEL));
+            });
+        }
+        if (result instanceof Flux) {
+            Flux<?> flux = (Flux<?>) result;
+            return Flux.defer(() -> {
+                Timer.Sample sample = Timer.start(meterRegistry);
+                return flux.doFinally(signal -> sample.stop(timer(name, typeTag, type, method, signal)));
+            });
+        }
+        return result;
+    }
+
+    private Timer timer(String name, String typeTag, String type, String method, SignalType signal) {
+        String outcome = outcome(signal);
+        return timers.computeIfAbsent(name + '|' + type + '|' + method + '|' + outcome, key -> Timer.builder(name)
+                .tag(typeTag, type)
+                .tag("method", method)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+
+    private static String outcome(SignalType signal) {
+        switch (signal) {
+            case ON_COMPLETE:
+                return "success";
+            case ON_ERROR:
+                return "error";
+            default:
+                return "cancelled";
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package br.com.atarashi.webflux.repository;
+
+import br.com.atarashi.webflux.domain.Anime;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+public interface AnimeBatchRepository {
+
+    Flux<Anime> insertAll(List<Anime> animes);
+}
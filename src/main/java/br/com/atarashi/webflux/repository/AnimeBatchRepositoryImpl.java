@@ -0,0 +1,51 @@
+package br.com.atarashi.webflux.repository;
+
+import br.com.atarashi.webflux.domain.Anime;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Statement;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.r2dbc.connectionfactory.ConnectionFactoryUtils;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+public class AnimeBatchRepositoryImpl implements AnimeBatchRepository {
+
+    private static final String INSERT_ANIME = "INSERT INTO anime(name) VALUES ($1)";
+
+    private final ConnectionFactory connectionFactory;
+    private final int chunkSize;
+
+    public AnimeBatchRepositoryImpl(ConnectionFactory connectionFactory,
+                                    @Value("${anime.batch.chunk-size:500}") int chunkSize) {
+        this.connectionFactory = connectionFactory;
+        this.chunkSize = chunkSize;
+    }
+
+    // manda cada bloco como um único statement com vários binds
+    @Override
+    public Flux<Anime> insertAll(List<Anime> animes) {
+        return Flux.usingWhen(ConnectionFactoryUtils.getConnection(connectionFactory),
+                connection -> Flux.fromIterable(animes)
+                        .buffer(chunkSize)
+                        .concatMap(chunk -> insertChunk(connection, chunk)),
+                connection -> ConnectionFactoryUtils.releaseConnection(connection, connectionFactory));
+    }
+
+    private Flux<Anime> insertChunk(Connection connection, List<Anime> chunk) {
+        Statement statement = connection.createStatement(INSERT_ANIME)
+                .returnGeneratedValues("id");
+
+        for (int i = 0; i < chunk.size(); i++) {
+            if (i > 0) {
+                statement.add();
+            }
+            statement.bind(0, chunk.get(i).getName());
+        }
+
+        return Flux.from(statement.execute())
+                .concatMap(result -> result.map((row, metadata) -> row.get("id", Integer.class)))
+                .zipWithIterable(chunk, (id, anime) -> anime.withId(id).withVersion(0));
+    }
+}
@@ -1,8 +1,31 @@
 package br.com.atarashi.webflux.repository;
 
 import br.com.atarashi.webflux.domain.Anime;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
-public interface AnimeRepository extends ReactiveCrudRepository<Anime, Integer> {
+public interface AnimeRepository extends ReactiveCrudRepository<Anime, Integer>, AnimeBatchRepository {
 
+    @Query("SELECT * FROM anime WHERE id > :after ORDER BY id LIMIT :limit")
+    Flux<Anime> findPage(int after, int limit);
+
+    // escritas em um único comando: o número de linhas afetadas diz se o registro existia
+    @Modifying
+    @Query("UPDATE anime SET name = :name, version = version + 1 WHERE id = :id")
+    Mono<Integer> updateName(int id, String name);
+
+    @Modifying
+    @Query("UPDATE anime SET name = :name, version = version + 1 WHERE id = :id AND version = :version")
+    Mono<Integer> updateNameIfVersion(int id, String name, int version);
+
+    @Modifying
+    @Query("DELETE FROM anime WHERE id = :id")
+    Mono<Integer> remove(int id);
+
+    @Modifying
+    @Query("DELETE FROM anime WHERE id = :id AND version = :version")
+    Mono<Integer> removeIfVersion(int id, int version);
 }
@@ -0,0 +1,43 @@
+package br.com.atarashi.webflux.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+// Tabelas inteiras em ordem de chave primária, linha a linha, só com os valores das colunas:
+// nada de entidade nem de lista, quem consome escreve e descarta cada linha.
+@Repository
+@RequiredArgsConstructor
+public class ExportRepository {
+
+    public static final List<String> ANIME_COLUMNS = List.of("id", "name", "version");
+    public static final List<String> GASTO_COLUMNS = List.of("id", "nome", "descricao", "data", "valor", "tags");
+
+    private static final String ANIMES = "SELECT id, name, version FROM anime ORDER BY id";
+    private static final String GASTOS = "SELECT id, nome, descricao, data, valor, tags FROM gasto ORDER BY id";
+
+    private final DatabaseClient databaseClient;
+
+    public Flux<Object[]> streamAnimes() {
+        return stream(ANIMES, ANIME_COLUMNS.size());
+    }
+
+    public Flux<Object[]> streamGastos() {
+        return stream(GASTOS, GASTO_COLUMNS.size());
+    }
+
+    private Flux<Object[]> stream(String sql, int columns) {
+        return databaseClient.execute(sql)
+                .map((row, metadata) -> {
+                    Object[] values = new Object[columns];
+                    for (int i = 0; i < columns; i++) {
+                        values[i] = row.get(i);
+                    }
+                    return values;
+                })
+                .all();
+    }
+}
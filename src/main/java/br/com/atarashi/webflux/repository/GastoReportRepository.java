@@ -0,0 +1,17 @@
+package br.com.atarashi.webflux.repository;
+
+import br.com.atarashi.webflux.domain.Gasto;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface GastoReportRepository {
+
+    Flux<Gasto> streamEntries(long fromId, long toId);
+
+    Mono<Long> findMaxId();
+
+    Flux<Gasto> findByTagsAndDataRange(List<Long> tagIds, LocalDateTime from, LocalDateTime to);
+}
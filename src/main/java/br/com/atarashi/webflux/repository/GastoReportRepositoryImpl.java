@@ -0,0 +1,69 @@
+package br.com.atarashi.webflux.repository;
+
+import br.com.atarashi.webflux.domain.Gasto;
+import org.springframework.data.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public class GastoReportRepositoryImpl implements GastoReportRepository {
+
+    private static final String STREAM_ENTRIES =
+            "SELECT id, data, valor, tags FROM gasto WHERE id >= :fromId AND id < :toId";
+    private static final String MAX_ID = "SELECT COALESCE(MAX(id), 0) AS max_id FROM gasto";
+
+    private final DatabaseClient databaseClient;
+
+    public GastoReportRepositoryImpl(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    // só as colunas que entram nos totais e no índice de tags, para um bloco [fromId, toId) da chave primária
+    @Override
+    public Flux<Gasto> streamEntries(long fromId, long toId) {
+        return databaseClient.execute(STREAM_ENTRIES)
+                .bind("fromId", fromId)
+                .bind("toId", toId)
+                .map((row, metadata) -> Gasto.builder()
+                        .id(row.get("id", Long.class))
+                        .data(row.get("data", LocalDateTime.class))
+                        .valor(row.get("valor", BigDecimal.class))
+                        .tags(row.get("tags", String.class))
+                        .build())
+                .all();
+    }
+
+    @Override
+    public Mono<Long> findMaxId() {
+        return databaseClient.execute(MAX_ID)
+                .map((row, metadata) -> row.get("max_id", Long.class))
+                .one();
+    }
+
+    // Uma faixa de (TAG_ID, DATA) no índice de GASTO_TAG para cada tag, e a interseção dos ids.
+    // Só os gastos que têm todas as tags são lidos de GASTO, pela chave primária.
+    @Override
+    public Flux<Gasto> findByTagsAndDataRange(List<Long> tagIds, LocalDateTime from, LocalDateTime to) {
+        StringBuilder sql = new StringBuilder("SELECT * FROM gasto WHERE id IN (");
+        for (int i = 0; i < tagIds.size(); i++) {
+            if (i > 0) {
+                sql.append(" INTERSECT ");
+            }
+            sql.append("SELECT gasto_id FROM gasto_tag WHERE tag_id = :tag").append(i)
+                    .append(" AND data >= :from").append(i)
+                    .append(" AND data < :to").append(i);
+        }
+        sql.append(") ORDER BY data, id");
+
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.execute(sql.toString());
+        for (int i = 0; i < tagIds.size(); i++) {
+            spec = spec.bind("tag" + i, tagIds.get(i))
+                    .bind("from" + i, from)
+                    .bind("to" + i, to);
+        }
+        return spec.as(Gasto.class).fetch().all();
+    }
+}
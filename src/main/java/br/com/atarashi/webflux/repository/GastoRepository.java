@@ -0,0 +1,30 @@
+package br.com.atarashi.webflux.repository;
+
+import br.com.atarashi.webflux.domain.Gasto;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+public interface GastoRepository extends ReactiveCrudRepository<Gasto, Long>, GastoReportRepository {
+
+    // intervalo semiaberto [from, to), resolvido pelo índice em DATA
+    @Query("SELECT * FROM gasto WHERE data >= :from AND data < :to ORDER BY data, id")
+    Flux<Gasto> findByDataRange(LocalDateTime from, LocalDateTime to);
+
+    // trava a linha até o fim da transação: o delta dos totais precisa dos valores que estão sendo substituídos
+    @Query("SELECT * FROM gasto WHERE id = :id FOR UPDATE")
+    Mono<Gasto> findByIdForUpdate(long id);
+
+    @Modifying
+    @Query("UPDATE gasto SET nome = :nome, descricao = :descricao, data = :data, valor = :valor, tags = :tags WHERE id = :id")
+    Mono<Integer> update(long id, String nome, String descricao, LocalDateTime data, BigDecimal valor, String tags);
+
+    @Modifying
+    @Query("DELETE FROM gasto WHERE id = :id")
+    Mono<Integer> remove(long id);
+}
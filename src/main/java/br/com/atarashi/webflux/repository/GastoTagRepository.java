@@ -0,0 +1,59 @@
+package br.com.atarashi.webflux.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Dicionário de tags e a tabela de ligação GASTO_TAG. A chave (TAG_ID, DATA, GASTO_ID) faz de
+// "gastos com a tag X no período" uma faixa do índice, sem LIKE sobre GASTO.TAGS.
+@Repository
+@RequiredArgsConstructor
+public class GastoTagRepository {
+
+    private static final String FIND_ID = "SELECT id FROM tag WHERE nome = :nome";
+    private static final String INSERT = "INSERT INTO tag (nome) VALUES (:nome)";
+    private static final String LINK = "INSERT INTO gasto_tag (tag_id, data, gasto_id) VALUES (:tagId, :data, :gastoId)";
+    private static final String UNLINK = "DELETE FROM gasto_tag WHERE gasto_id = :gastoId";
+
+    private final DatabaseClient databaseClient;
+
+    public Mono<Long> findId(String nome) {
+        return databaseClient.execute(FIND_ID)
+                .bind("nome", nome)
+                .map((row, metadata) -> row.get("id", Long.class))
+                .one();
+    }
+
+    // falha com DataIntegrityViolationException se outra transação criou a mesma tag antes
+    public Mono<Void> insert(String nome) {
+        return databaseClient.execute(INSERT)
+                .bind("nome", nome)
+                .then();
+    }
+
+    public Mono<Void> link(long gastoId, LocalDateTime data, List<Long> tagIds) {
+        return Flux.fromIterable(tagIds)
+                .concatMap(tagId -> databaseClient.execute(LINK)
+                        .bind("tagId", tagId)
+                        .bind("data", data)
+                        .bind("gastoId", gastoId)
+                        .fetch().rowsUpdated())
+                .then();
+    }
+
+    public Mono<Void> unlink(long gastoId) {
+        return databaseClient.execute(UNLINK)
+                .bind("gastoId", gastoId)
+                .then();
+    }
+
+    // o rebuild refaz as ligações; o dicionário fica, então os ids já conhecidos continuam válidos
+    public Mono<Void> clear() {
+        return databaseClient.execute("DELETE FROM gasto_tag").then();
+    }
+}
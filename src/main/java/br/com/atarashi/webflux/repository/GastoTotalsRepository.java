@@ -0,0 +1,114 @@
+package br.com.atarashi.webflux.repository;
+
+import br.com.atarashi.webflux.domain.GastoTotal;
+import br.com.atarashi.webflux.domain.GastoTotalsDelta;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.function.Function;
+
+// Totais materializados de GASTO por dia, por mês e por tag e dia. Cada escrita soma o seu delta
+// com MERGE na mesma transação do gasto, então os relatórios só leem poucas linhas já somadas.
+@Repository
+@RequiredArgsConstructor
+public class GastoTotalsRepository {
+
+    private static final String MERGE_DAY = "MERGE INTO gasto_total_dia t"
+            + " USING (SELECT CAST(:dia AS DATE) AS dia, CAST(:quantidade AS BIGINT) AS quantidade, CAST(:total AS DECIMAL(19,2)) AS total) s"
+            + " ON t.dia = s.dia"
+            + " WHEN MATCHED THEN UPDATE SET quantidade = t.quantidade + s.quantidade, total = t.total + s.total"
+            + " WHEN NOT MATCHED THEN INSERT (dia, quantidade, total) VALUES (s.dia, s.quantidade, s.total)";
+
+    private static final String MERGE_MONTH = "MERGE INTO gasto_total_mes t"
+            + " USING (SELECT CAST(:mes AS DATE) AS mes, CAST(:quantidade AS BIGINT) AS quantidade, CAST(:total AS DECIMAL(19,2)) AS total) s"
+            + " ON t.mes = s.mes"
+            + " WHEN MATCHED THEN UPDATE SET quantidade = t.quantidade + s.quantidade, total = t.total + s.total"
+            + " WHEN NOT MATCHED THEN INSERT (mes, quantidade, total) VALUES (s.mes, s.quantidade, s.total)";
+
+    private static final String MERGE_TAG = "MERGE INTO gasto_total_tag t"
+            + " USING (SELECT CAST(:tag AS VARCHAR) AS tag, CAST(:dia AS DATE) AS dia, CAST(:quantidade AS BIGINT) AS quantidade, CAST(:total AS DECIMAL(19,2)) AS total) s"
+            + " ON t.tag = s.tag AND t.dia = s.dia"
+            + " WHEN MATCHED THEN UPDATE SET quantidade = t.quantidade + s.quantidade, total = t.total + s.total"
+            + " WHEN NOT MATCHED THEN INSERT (tag, dia, quantidade, total) VALUES (s.tag, s.dia, s.quantidade, s.total)";
+
+    private static final String FIND_DAYS = "SELECT dia, quantidade, total FROM gasto_total_dia"
+            + " WHERE dia >= :from AND dia < :to AND quantidade > 0 ORDER BY dia";
+
+    private static final String FIND_MONTHS = "SELECT mes, quantidade, total FROM gasto_total_mes"
+            + " WHERE mes >= :from AND mes < :to AND quantidade > 0 ORDER BY mes";
+
+    private static final String FIND_TAGS = "SELECT tag, CAST(SUM(quantidade) AS BIGINT) AS quantidade, SUM(total) AS total FROM gasto_total_tag"
+            + " WHERE dia >= :from AND dia < :to GROUP BY tag HAVING SUM(quantidade) > 0 ORDER BY tag";
+
+    private final DatabaseClient databaseClient;
+
+    // dias, meses e tags, cada grupo em ordem de chave: duas transações nunca esperam uma pela outra em círculo
+    public Mono<Void> apply(GastoTotalsDelta delta) {
+        Flux<Integer> days = Flux.fromIterable(delta.getDays().entrySet())
+                .filter(entry -> !entry.getValue().isZero())
+                .concatMap(entry -> merge(MERGE_DAY, entry.getValue())
+                        .bind("dia", entry.getKey())
+                        .fetch().rowsUpdated());
+        Flux<Integer> months = Flux.fromIterable(delta.getMonths().entrySet())
+                .filter(entry -> !entry.getValue().isZero())
+                .concatMap(entry -> merge(MERGE_MONTH, entry.getValue())
+                        .bind("mes", entry.getKey())
+                        .fetch().rowsUpdated());
+        Flux<Integer> tags = Flux.fromIterable(delta.getTagDays().entrySet())
+                .filter(entry -> !entry.getValue().isZero())
+                .concatMap(entry -> merge(MERGE_TAG, entry.getValue())
+                        .bind("tag", entry.getKey().getTag())
+                        .bind("dia", entry.getKey().getDay())
+                        .fetch().rowsUpdated());
+        return Flux.concat(days, months, tags).then();
+    }
+
+    private DatabaseClient.GenericExecuteSpec merge(String sql, GastoTotalsDelta.Totals totals) {
+        return databaseClient.execute(sql)
+                .bind("quantidade", totals.getCount())
+                .bind("total", totals.getTotal());
+    }
+
+    // [from, to) em dias
+    public Flux<GastoTotal> findDays(LocalDate from, LocalDate to) {
+        return find(FIND_DAYS, from, to, "dia", LocalDate::toString);
+    }
+
+    // [from, to) em meses, os dois no primeiro dia do mês
+    public Flux<GastoTotal> findMonths(LocalDate from, LocalDate to) {
+        return find(FIND_MONTHS, from, to, "mes", month -> YearMonth.from(month).toString());
+    }
+
+    public Flux<GastoTotal> findTags(LocalDate from, LocalDate to) {
+        return databaseClient.execute(FIND_TAGS)
+                .bind("from", from)
+                .bind("to", to)
+                .map((row, metadata) -> new GastoTotal(row.get("tag", String.class),
+                        row.get("quantidade", Long.class), row.get("total", BigDecimal.class)))
+                .all();
+    }
+
+    private Flux<GastoTotal> find(String sql, LocalDate from, LocalDate to, String column,
+                                  Function<LocalDate, String> key) {
+        return databaseClient.execute(sql)
+                .bind("from", from)
+                .bind("to", to)
+                .map((row, metadata) -> new GastoTotal(key.apply(row.get(column, LocalDate.class)),
+                        row.get("quantidade", Long.class), row.get("total", BigDecimal.class)))
+                .all();
+    }
+
+    // o rebuild apaga e regrava os totais na mesma transação; o GastoService recusa escritas e relatórios
+    // enquanto ele roda
+    public Mono<Void> clear() {
+        return databaseClient.execute("DELETE FROM gasto_total_dia").then()
+                .then(databaseClient.execute("DELETE FROM gasto_total_mes").then())
+                .then(databaseClient.execute("DELETE FROM gasto_total_tag").then());
+    }
+}
@@ -0,0 +1,221 @@
+package br.com.atarashi.webflux.search;
+
+import br.com.atarashi.webflux.domain.Anime;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.regex.Pattern;
+
+@Component
+public class AnimeSearchIndex {
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{Alnum}]+");
+    private static final String[] NO_TOKENS = new String[0];
+
+    // limites que mantêm a busca em tempo constante mesmo para prefixos muito comuns
+    private static final int MAX_CANDIDATES = 256;
+    private static final int MAX_SCANNED = 4_096;
+
+    // nomes mais curtos primeiro: são os que mais se parecem com um prefixo digitado
+    private static final Comparator<Entry> POSTING_ORDER = Comparator
+            .<Entry>comparingInt(entry -> entry.normalized.length())
+            .thenComparingInt(entry -> entry.id);
+
+    private final ConcurrentMap<Integer, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentNavigableMap<String, NavigableSet<Entry>> postings = new ConcurrentSkipListMap<>();
+
+    public void index(Anime anime) {
+        Entry entry = new Entry(anime.getId(), anime.getName());
+        entries.compute(entry.id, (id, previous) -> {
+            if (previous != null) {
+                unlink(previous);
+            }
+            link(entry);
+            return entry;
+        });
+    }
+
+    // usado na carga inicial para não sobrescrever o que já foi indexado por uma escrita concorrente
+    public void indexIfAbsent(Anime anime) {
+        entries.computeIfAbsent(anime.getId(), id -> {
+            Entry entry = new Entry(id, anime.getName());
+            link(entry);
+            return entry;
+        });
+    }
+
+    public void remove(Integer id) {
+        entries.computeIfPresent(id, (key, previous) -> {
+            unlink(previous);
+            return null;
+        });
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public List<Anime> search(String query, int limit) {
+        String[] terms = tokenize(query);
+        if (terms.length == 0 || limit <= 0) {
+            return List.of();
+        }
+
+        String normalizedQuery = String.join(" ", terms);
+        String driver = terms[0];
+        for (String term : terms) {
+            if (term.length() > driver.length()) {
+                driver = term;
+            }
+        }
+
+        // primeiro quem tem o termo inteiro como palavra, depois quem só começa com ele
+        Set<Entry> candidates = new LinkedHashSet<>();
+        int scanned = collect(postings.get(driver), terms, candidates, 0);
+        for (NavigableSet<Entry> matches : postings.subMap(driver, false, driver + Character.MAX_VALUE, false).values()) {
+            if (candidates.size() >= MAX_CANDIDATES || scanned >= MAX_SCANNED) {
+                break;
+            }
+            scanned = collect(matches, terms, candidates, scanned);
+        }
+
+        // seleção dos melhores com um heap do tamanho do limite, sem ordenar todos os candidatos
+        Comparator<Ranked> ranking = Comparator.<Ranked>comparingInt(ranked -> ranked.score)
+                .reversed()
+                .thenComparing(ranked -> ranked.entry, POSTING_ORDER);
+        PriorityQueue<Ranked> best = new PriorityQueue<>(limit + 1, ranking.reversed());
+        for (Entry entry : candidates) {
+            best.add(new Ranked(entry, entry.score(normalizedQuery, driver)));
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+
+        List<Ranked> ranked = new ArrayList<>(best);
+        ranked.sort(ranking);
+        List<Anime> result = new ArrayList<>(ranked.size());
+        for (Ranked match : ranked) {
+            result.add(Anime.builder().id(match.entry.id).name(match.entry.name).build());
+        }
+        return result;
+    }
+
+    private int collect(NavigableSet<Entry> matches, String[] terms, Set<Entry> candidates, int scanned) {
+        if (matches == null) {
+            return scanned;
+        }
+        for (Entry entry : matches) {
+            if (candidates.size() >= MAX_CANDIDATES || scanned++ >= MAX_SCANNED) {
+                break;
+            }
+            if (entry.matchesAll(terms)) {
+                candidates.add(entry);
+            }
+        }
+        return scanned;
+    }
+
+    // os conjuntos vazios ficam no mapa: removê-los concorreria com um link do mesmo token
+    private void link(Entry entry) {
+        for (String token : entry.tokens) {
+            postings.computeIfAbsent(token, key -> new ConcurrentSkipListSet<>(POSTING_ORDER)).add(entry);
+        }
+    }
+
+    private void unlink(Entry entry) {
+        for (String token : entry.tokens) {
+            NavigableSet<Entry> matches = postings.get(token);
+            if (matches != null) {
+                matches.remove(entry);
+            }
+        }
+    }
+
+    static String[] tokenize(String text) {
+        if (text == null) {
+            return NO_TOKENS;
+        }
+        String normalized = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase(Locale.ROOT);
+        List<String> tokens = new ArrayList<>();
+        for (String token : SEPARATORS.split(normalized)) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens.toArray(NO_TOKENS);
+    }
+
+    private static final class Ranked {
+
+        private final Entry entry;
+        private final int score;
+
+        private Ranked(Entry entry, int score) {
+            this.entry = entry;
+            this.score = score;
+        }
+    }
+
+    private static final class Entry {
+
+        private final int id;
+        private final String name;
+        private final String[] tokens;
+        private final String normalized;
+
+        private Entry(int id, String name) {
+            this.id = id;
+            this.name = name;
+            this.tokens = tokenize(name);
+            this.normalized = String.join(" ", tokens);
+        }
+
+        private boolean matchesAll(String[] terms) {
+            for (String term : terms) {
+                if (!hasTokenStartingWith(term)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean hasTokenStartingWith(String term) {
+            for (String token : tokens) {
+                if (token.startsWith(term)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private int score(String query, String exactToken) {
+            if (normalized.equals(query)) {
+                return 3;
+            }
+            if (normalized.startsWith(query)) {
+                return 2;
+            }
+            for (String token : tokens) {
+                if (token.equals(exactToken)) {
+                    return 1;
+                }
+            }
+            return 0;
+        }
+    }
+}
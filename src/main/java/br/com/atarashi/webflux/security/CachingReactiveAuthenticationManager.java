@@ -0,0 +1,69 @@
+package br.com.atarashi.webflux.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+
+public class CachingReactiveAuthenticationManager implements ReactiveAuthenticationManager {
+
+    private final ReactiveAuthenticationManager delegate;
+    private final Cache<String, Authentication> verifiedCredentials;
+    private final byte[] salt = new byte[16];
+
+    public CachingReactiveAuthenticationManager(ReactiveAuthenticationManager delegate, long maximumSize, Duration expireAfterWrite) {
+        this.delegate = delegate;
+        this.verifiedCredentials = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        new SecureRandom().nextBytes(salt);
+    }
+
+    @Override
+    public Mono<Authentication> authenticate(Authentication authentication) {
+        if (!(authentication instanceof UsernamePasswordAuthenticationToken) || authentication.getCredentials() == null) {
+            return delegate.authenticate(authentication);
+        }
+
+        return Mono.defer(() -> {
+            String key = credentialKey(authentication.getName(), authentication.getCredentials().toString());
+            Authentication verified = verifiedCredentials.getIfPresent(key);
+            if (verified != null) {
+                return Mono.just(verified);
+            }
+
+            return delegate.authenticate(authentication)
+                    .doOnNext(result -> verifiedCredentials.put(key, result));
+        });
+    }
+
+    public CacheStats stats() {
+        return verifiedCredentials.stats();
+    }
+
+    // a chave nunca guarda a senha em claro, só um hash com salt gerado a cada inicialização
+    private String credentialKey(String username, String password) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(salt);
+            digest.update(username.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(password.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package br.com.atarashi.webflux.security;
+
+import br.com.atarashi.webflux.domain.AccessToken;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
+import org.springframework.security.oauth2.jwt.NimbusReactiveJwtDecoder;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+import org.springframework.security.oauth2.server.resource.authentication.JwtGrantedAuthoritiesConverter;
+import org.springframework.security.oauth2.server.resource.authentication.JwtReactiveAuthenticationManager;
+import org.springframework.security.oauth2.server.resource.authentication.ReactiveJwtAuthenticationConverterAdapter;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Mono;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.stream.Collectors;
+
+@Component
+@Slf4j
+public class JwtTokenService {
+
+    private static final String AUTHORITIES_CLAIM = "authorities";
+    // HS256 exige uma chave de pelo menos 256 bits
+    static final int MIN_SECRET_BYTES = 32;
+
+    private final SecretKey secretKey;
+    private final Duration expiration;
+
+    public JwtTokenService(@Value("${security.jwt.secret:}") String secret,
+                           @Value("${security.jwt.expiration:15m}") Duration expiration) {
+        this.secretKey = new SecretKeySpec(secretBytes(secret), "HmacSHA256");
+        this.expiration = expiration;
+    }
+
+    public Mono<AccessToken> issue(Authentication authentication) {
+        return Mono.fromCallable(() -> {
+            Instant now = Instant.now();
+            JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                    .subject(authentication.getName())
+                    .issueTime(Date.from(now))
+                    .expirationTime(Date.from(now.plus(expiration)))
+                    .claim(AUTHORITIES_CLAIM, authentication.getAuthorities().stream()
+                            .map(GrantedAuthority::getAuthority)
+                            .collect(Collectors.toList()))
+                    .build();
+
+            return new AccessToken(sign(claims), "Bearer", expiration.getSeconds());
+        });
+    }
+
+    // valida a assinatura e as permissões do próprio token, sem consultar o banco
+    public ReactiveAuthenticationManager authenticationManager() {
+        JwtGrantedAuthoritiesConverter authoritiesConverter = new JwtGrantedAuthoritiesConverter();
+        authoritiesConverter.setAuthoritiesClaimName(AUTHORITIES_CLAIM);
+        authoritiesConverter.setAuthorityPrefix("");
+
+        JwtAuthenticationConverter authenticationConverter = new JwtAuthenticationConverter();
+        authenticationConverter.setJwtGrantedAuthoritiesConverter(authoritiesConverter);
+
+        JwtReactiveAuthenticationManager authenticationManager = new JwtReactiveAuthenticationManager(decoder());
+        authenticationManager.setJwtAuthenticationConverter(new ReactiveJwtAuthenticationConverterAdapter(authenticationConverter));
+        return authenticationManager;
+    }
+
+    private ReactiveJwtDecoder decoder() {
+        return NimbusReactiveJwtDecoder.withSecretKey(secretKey)
+                .macAlgorithm(MacAlgorithm.HS256)
+                .build();
+    }
+
+    private String sign(JWTClaimsSet claims) throws JOSEException {
+        SignedJWT jwt = new SignedJWT(new JWSHeader(JWSAlgorithm.HS256), claims);
+        jwt.sign(new MACSigner(secretKey));
+        return jwt.serialize();
+    }
+
+    private static byte[] secretBytes(String secret) {
+        if (StringUtils.hasText(secret)) {
+            byte[] bytes = secret.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length < MIN_SECRET_BYTES) {
+                throw new IllegalStateException("security.jwt.secret must have at least " + MIN_SECRET_BYTES
+                        + " bytes for HS256, but has " + bytes.length);
+            }
+            return bytes;
+        }
+
+        log.warn("security.jwt.secret is not set, tokens will be signed with a random key and will not survive a restart");
+        byte[] random = new byte[MIN_SECRET_BYTES];
+        new SecureRandom().nextBytes(random);
+        return random;
+    }
+}
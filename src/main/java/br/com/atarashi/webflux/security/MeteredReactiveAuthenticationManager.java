@@ -0,0 +1,44 @@
+package br.com.atarashi.webflux.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import reactor.core.publisher.Mono;
+
+// tempo e resultado de cada autenticação: success, failure (credenciais inválidas) ou error (ex. fila do bcrypt cheia)
+public class MeteredReactiveAuthenticationManager implements ReactiveAuthenticationManager {
+
+    private final ReactiveAuthenticationManager delegate;
+    private final MeterRegistry meterRegistry;
+    private final Timer success;
+    private final Timer failure;
+    private final Timer error;
+
+    public MeteredReactiveAuthenticationManager(ReactiveAuthenticationManager delegate, MeterRegistry meterRegistry, String mechanism) {
+        this.delegate = delegate;
+        this.meterRegistry = meterRegistry;
+        this.success = timer(meterRegistry, mechanism, "success");
+        this.failure = timer(meterRegistry, mechanism, "failure");
+        this.error = timer(meterRegistry, mechanism, "error");
+    }
+
+    @Override
+    public Mono<Authentication> authenticate(Authentication authentication) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return delegate.authenticate(authentication)
+                    .doOnSuccess(authenticated -> sample.stop(authenticated != null ? success : failure))
+                    .doOnError(e -> sample.stop(e instanceof AuthenticationException ? failure : error));
+        });
+    }
+
+    private static Timer timer(MeterRegistry meterRegistry, String mechanism, String outcome) {
+        return Timer.builder("security.authentications")
+                .tag("mechanism", mechanism)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,100 @@
+package br.com.atarashi.webflux.security;
+
+import br.com.atarashi.webflux.exception.PrebuiltError;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+@Component
+public class PasswordVerificationScheduler implements DisposableBean {
+
+    private static final PrebuiltError SATURATED =
+            new PrebuiltError(HttpStatus.SERVICE_UNAVAILABLE, "Too many pending password verifications");
+
+    private final Scheduler scheduler;
+    private final int queueLimit;
+    private final AtomicInteger pending = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder verifications = new LongAdder();
+    private final LongAdder verificationNanos = new LongAdder();
+
+    public PasswordVerificationScheduler(@Value("${security.password-verification.threads:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}") int threads,
+                                         @Value("${security.password-verification.queue-limit:256}") int queueLimit) {
+        this.scheduler = Schedulers.newBoundedElastic(threads, queueLimit, "password-verification");
+        this.queueLimit = queueLimit;
+    }
+
+    public Scheduler scheduler() {
+        return scheduler;
+    }
+
+    // recusa na hora quando a fila está cheia em vez de deixar as requisições esperando pelo bcrypt
+    public <T> Mono<T> admit(Mono<T> verification) {
+        return Mono.defer(() -> {
+            if (pending.incrementAndGet() > queueLimit) {
+                pending.decrementAndGet();
+                rejected.increment();
+                return Mono.error(SATURATED.exception());
+            }
+
+            return verification
+                    .onErrorMap(RejectedExecutionException.class, e -> SATURATED.exception())
+                    .doFinally(signal -> pending.decrementAndGet());
+        });
+    }
+
+    public PasswordEncoder timed(PasswordEncoder passwordEncoder) {
+        return new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                return passwordEncoder.encode(rawPassword);
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                long start = System.nanoTime();
+                try {
+                    return passwordEncoder.matches(rawPassword, encodedPassword);
+                } finally {
+                    verifications.increment();
+                    verificationNanos.add(System.nanoTime() - start);
+                }
+            }
+
+            @Override
+            public boolean upgradeEncoding(String encodedPassword) {
+                return passwordEncoder.upgradeEncoding(encodedPassword);
+            }
+        };
+    }
+
+    public int getPending() {
+        return pending.get();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public long getVerifications() {
+        return verifications.sum();
+    }
+
+    public long getVerificationNanos() {
+        return verificationNanos.sum();
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.dispose();
+    }
+}
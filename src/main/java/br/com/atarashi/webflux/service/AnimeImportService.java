@@ -0,0 +1,195 @@
+package br.com.atarashi.webflux.service;
+
+import br.com.atarashi.webflux.domain.AnimeImportStatus;
+import br.com.atarashi.webflux.exception.PrebuiltError;
+import br.com.atarashi.webflux.export.ExportFormat;
+import br.com.atarashi.webflux.export.RowExporter;
+import br.com.atarashi.webflux.importer.AnimeCsvReader;
+import br.com.atarashi.webflux.importer.AnimeImportJob;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Importação de CSV em pipeline: o parser lê o corpo buffer a buffer, a validação roda em lotes
+// no scheduler limitado e os animes válidos vão para o banco em blocos transacionais pelo AnimeService.
+// A demanda do banco controla a leitura do upload, então a memória não depende do tamanho do arquivo.
+// Linhas inválidas vão para o relatório de erros; só um CSV ilegível ou uma falha do banco interrompem
+// a importação, e os blocos já confirmados ficam gravados. A importação é criada antes do upload para
+// o cliente ter o id e poder acompanhar o progresso enquanto ainda envia o arquivo.
+// Importações pendentes ou em andamento ficam num mapa sem despejo, limitado a maximum-jobs; o limite de
+// tamanho e a retenção do cache valem só para as terminadas, que não recebem mais upload.
+@Service
+@Slf4j
+public class AnimeImportService implements DisposableBean {
+
+    private static final int VALIDATION_BATCH = 500;
+    private static final List<String> ERROR_COLUMNS = List.of("line", "error", "name");
+
+    private static final PrebuiltError IMPORT_NOT_FOUND =
+            new PrebuiltError(HttpStatus.NOT_FOUND, "Import not found");
+    private static final PrebuiltError IMPORT_ALREADY_STARTED =
+            new PrebuiltError(HttpStatus.CONFLICT, "Import already received its CSV");
+    private static final PrebuiltError TOO_MANY_IMPORTS =
+            new PrebuiltError(HttpStatus.SERVICE_UNAVAILABLE, "Too many imports in progress");
+
+    private final AnimeService animeService;
+    private final RowExporter rowExporter;
+    private final Scheduler validationScheduler;
+    private final Map<String, AnimeImportJob> activeJobs = new ConcurrentHashMap<>();
+    private final Cache<String, AnimeImportJob> finishedJobs;
+    private final int validationThreads;
+    private final int maxRecordLength;
+    private final int chunkSize;
+    private final int writeConcurrency;
+    private final int maxErrors;
+    private final int maximumJobs;
+    private final Duration pendingTimeout;
+
+    public AnimeImportService(AnimeService animeService, RowExporter rowExporter,
+                              @Value("${anime.import.validation-threads:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}") int validationThreads,
+                              @Value("${anime.import.max-record-length:64KB}") DataSize maxRecordLength,
+                              @Value("${anime.import.chunk-size:1000}") int chunkSize,
+                              @Value("${anime.import.write-concurrency:2}") int writeConcurrency,
+                              @Value("${anime.import.max-errors:10000}") int maxErrors,
+                              @Value("${anime.import.maximum-jobs:100}") int maximumJobs,
+                              @Value("${anime.import.retention:24h}") Duration retention,
+                              @Value("${anime.import.pending-timeout:10m}") Duration pendingTimeout) {
+        this.animeService = animeService;
+        this.rowExporter = rowExporter;
+        this.validationScheduler = Schedulers.newParallel("anime-import-validation", validationThreads);
+        this.finishedJobs = Caffeine.newBuilder()
+                .maximumSize(maximumJobs)
+                .expireAfterWrite(retention)
+                .build();
+        this.validationThreads = validationThreads;
+        this.maxRecordLength = (int) maxRecordLength.toBytes();
+        this.chunkSize = chunkSize;
+        this.writeConcurrency = writeConcurrency;
+        this.maxErrors = maxErrors;
+        this.maximumJobs = maximumJobs;
+        this.pendingTimeout = pendingTimeout;
+    }
+
+    public Mono<AnimeImportStatus> create() {
+        return Mono.fromCallable(() -> {
+            expirePendingJobs();
+            if (activeJobs.size() >= maximumJobs) {
+                throw TOO_MANY_IMPORTS.exception();
+            }
+            AnimeImportJob job = new AnimeImportJob(UUID.randomUUID().toString(), maxErrors);
+            activeJobs.put(job.getId(), job);
+            return job.snapshot();
+        });
+    }
+
+    // sem isso um cliente que cria importações e nunca envia o CSV ocuparia o mapa de ativas para sempre
+    private void expirePendingJobs() {
+        Instant deadline = Instant.now().minus(pendingTimeout);
+        for (AnimeImportJob job : activeJobs.values()) {
+            if (job.expire(deadline)) {
+                moveToFinished(job);
+            }
+        }
+    }
+
+    // entra no cache antes de sair do mapa, para uma consulta no meio do caminho não responder 404
+    private void moveToFinished(AnimeImportJob job) {
+        finishedJobs.put(job.getId(), job);
+        activeJobs.remove(job.getId(), job);
+    }
+
+    // termina junto com a importação; o progresso pode ser consultado em findById enquanto ela roda
+    public Mono<AnimeImportStatus> importCsv(String id, Flux<DataBuffer> body) {
+        return findJob(id)
+                .filter(AnimeImportJob::start)
+                .switchIfEmpty(Mono.defer(() -> Mono.error(IMPORT_ALREADY_STARTED.exception())))
+                .flatMap(job -> run(job, body));
+    }
+
+    private Mono<AnimeImportStatus> run(AnimeImportJob job, Flux<DataBuffer> body) {
+        AnimeCsvReader reader = new AnimeCsvReader(maxRecordLength);
+        log.info("Anime import {} started", job.getId());
+
+        return body
+                .doOnNext(buffer -> job.addBytesRead(buffer.readableByteCount()))
+                .concatMapIterable(reader::read)
+                .concatWith(Flux.defer(() -> Flux.fromIterable(reader.finish())))
+                .buffer(VALIDATION_BATCH)
+                .doOnNext(records -> job.addRowsRead(records.size()))
+                .flatMapSequential(records -> Mono.fromCallable(() -> reader.validate(records))
+                        .subscribeOn(validationScheduler), validationThreads)
+                .doOnNext(rows -> job.addErrors(rows.getErrors()))
+                .concatMapIterable(AnimeCsvReader.Rows::getAnimes)
+                .buffer(chunkSize)
+                .flatMapSequential(animeService::saveChunk, writeConcurrency)
+                .doOnNext(job::addRowsSaved)
+                .then(Mono.fromSupplier(job::complete))
+                .doOnError(e -> job.fail(reason(job, e)))
+                .doOnCancel(() -> job.fail("Import cancelled"))
+                .doOnDiscard(DataBuffer.class, DataBufferUtils::release)
+                // a retenção conta a partir do fim da importação
+                .doFinally(signal -> moveToFinished(job));
+    }
+
+    private static String reason(AnimeImportJob job, Throwable error) {
+        if (error instanceof ResponseStatusException) {
+            return ((ResponseStatusException) error).getReason();
+        }
+        log.warn("Anime import {} failed", job.getId(), error);
+        return "Unexpected error while importing; rows already reported as saved were kept";
+    }
+
+    public Flux<AnimeImportStatus> findAll() {
+        return Flux.defer(() -> Flux.concat(Flux.fromIterable(activeJobs.values()),
+                        Flux.fromIterable(finishedJobs.asMap().values())))
+                .distinct(AnimeImportJob::getId)
+                .sort(Comparator.comparing(AnimeImportJob::getCreatedAt).reversed())
+                .map(AnimeImportJob::snapshot);
+    }
+
+    public Mono<AnimeImportStatus> findById(String id) {
+        return findJob(id).map(AnimeImportJob::snapshot);
+    }
+
+    // line,error,name de cada linha recusada, no mesmo CSV das exportações
+    public Mono<Flux<DataBuffer>> errorReport(String id, DataBufferFactory bufferFactory) {
+        return findJob(id)
+                .map(job -> rowExporter.export(Flux.fromIterable(job.getErrors())
+                                .map(rowError -> new Object[]{rowError.getLine(), rowError.getError(), rowError.getName()}),
+                        ERROR_COLUMNS, ExportFormat.CSV, false, bufferFactory));
+    }
+
+    private Mono<AnimeImportJob> findJob(String id) {
+        return Mono.fromSupplier(() -> {
+                    AnimeImportJob job = activeJobs.get(id);
+                    return job != null ? job : finishedJobs.getIfPresent(id);
+                })
+                .switchIfEmpty(Mono.defer(() -> Mono.error(IMPORT_NOT_FOUND.exception())));
+    }
+
+    @Override
+    public void destroy() {
+        validationScheduler.dispose();
+    }
+}
@@ -1,66 +1,250 @@
 package br.com.atarashi.webflux.service;
 
+import br.com.atarashi.webflux.cache.AnimeCache;
 import br.com.atarashi.webflux.domain.Anime;
+import br.com.atarashi.webflux.domain.AnimeChunkAck;
+import br.com.atarashi.webflux.domain.AnimePage;
+import br.com.atarashi.webflux.exception.PrebuiltError;
 import br.com.atarashi.webflux.repository.AnimeRepository;
+import br.com.atarashi.webflux.search.AnimeSearchIndex;
 import io.netty.util.internal.StringUtil;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.NoTransactionException;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.reactive.TransactionSynchronization;
+import org.springframework.transaction.reactive.TransactionSynchronizationManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
 import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 @Slf4j
-@RequiredArgsConstructor
 public class AnimeService {
 
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int STREAM_PREFETCH = 256;
+    private static final int MAX_SEARCH_RESULTS = 50;
+
+    public static final String INVALID_NAME_REASON = "Invalid Name";
+
+    private static final PrebuiltError ANIME_NOT_FOUND =
+            new PrebuiltError(HttpStatus.NOT_FOUND, "Anime not found");
+    private static final PrebuiltError INVALID_NAME =
+            new PrebuiltError(HttpStatus.BAD_REQUEST, INVALID_NAME_REASON);
+    private static final PrebuiltError ANIME_MODIFIED =
+            new PrebuiltError(HttpStatus.PRECONDITION_FAILED, "Anime was modified by another request");
+
     private final AnimeRepository animeRepository;
+    private final AnimeCache animeCache;
+    private final AnimeSearchIndex animeSearchIndex;
+    private final TransactionalOperator transactionalOperator;
 
+    // muda a cada escrita feita por este serviço; é a base do ETag das listagens
+    private final AtomicLong collectionVersion = new AtomicLong();
+
+    private final int ingestChunkSize;
+    private final int ingestConcurrency;
+
+    public AnimeService(AnimeRepository animeRepository, AnimeCache animeCache, AnimeSearchIndex animeSearchIndex,
+                        TransactionalOperator transactionalOperator,
+                        @Value("${anime.ingest.chunk-size:1000}") int ingestChunkSize,
+                        @Value("${anime.ingest.concurrency:2}") int ingestConcurrency) {
+        this.animeRepository = animeRepository;
+        this.animeCache = animeCache;
+        this.animeSearchIndex = animeSearchIndex;
+        this.transactionalOperator = transactionalOperator;
+        this.ingestChunkSize = ingestChunkSize;
+        this.ingestConcurrency = ingestConcurrency;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildSearchIndex() {
+        Flux.defer(animeRepository::findAll)
+                .doOnNext(animeSearchIndex::indexIfAbsent)
+                .count()
+                .subscribe(count -> log.info("Search index built with {} animes", count),
+                        e -> log.warn("Could not build the search index: {}", e.toString()));
+    }
+
+    public long collectionVersion() {
+        return collectionVersion.get();
+    }
 
     public Flux<Anime> findAll() {
         return animeRepository.findAll();
     }
 
+    public Flux<Anime> streamAll() {
+        // limita a demanda repassada ao cursor do banco conforme o cliente consome
+        return animeRepository.findAll()
+                .limitRate(STREAM_PREFETCH);
+    }
+
+    public Mono<AnimePage> findPage(int after, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+
+        // busca um registro a mais só para saber se existe uma próxima página
+        return animeRepository.findPage(after, pageSize + 1)
+                .collectList()
+                .map(animes -> toPage(animes, pageSize));
+    }
+
+    private AnimePage toPage(List<Anime> animes, int pageSize) {
+        if (animes.size() <= pageSize) {
+            return new AnimePage(animes, null);
+        }
+
+        List<Anime> content = animes.subList(0, pageSize);
+        return new AnimePage(content, content.get(pageSize - 1).getId());
+    }
+
+    public Flux<Anime> search(String query, int limit) {
+        int maxResults = Math.max(1, Math.min(limit, MAX_SEARCH_RESULTS));
+        return Flux.defer(() -> Flux.fromIterable(animeSearchIndex.search(query, maxResults)));
+    }
+
     public Mono<Anime> findById(int id) {
-        return animeRepository.findById(id)
+        return animeCache.get(id, animeRepository::findById)
                 .switchIfEmpty(monoResponseStatusNotFoundException());
     }
 
     public <T> Mono<T> monoResponseStatusNotFoundException() {
-        return Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "Anime not found"));
+        return Mono.defer(() -> Mono.error(ANIME_NOT_FOUND.exception()));
     }
 
     public Mono<Anime> save(Anime anime) {
-        return animeRepository.save(anime);
+        return animeRepository.save(anime)
+                .flatMap(saved -> afterCommit(() -> afterWrite(saved)).thenReturn(saved));
     }
 
     @Transactional
     public Flux<Anime> saveAll(List<Anime> animes) {
-        return animeRepository.saveAll(animes)
-                .doOnNext(this::throwResponseStatusExceptionEmptyName);
+        return insertAll(animes);
+    }
+
+    // sem transação: saveAll usa a do @Transactional, ingestChunk e saveChunk a do transactionalOperator
+    private Flux<Anime> insertAll(List<Anime> animes) {
+        // valida a lista inteira antes de escrever para não precisar de rollback
+        return Flux.defer(() -> {
+            animes.forEach(this::throwResponseStatusExceptionEmptyName);
+            return animeRepository.insertAll(animes);
+        }).concatMap(saved -> afterCommit(() -> afterWrite(saved)).thenReturn(saved));
+    }
+
+    // cada bloco é gravado na sua própria transação e confirmado assim que termina
+    public Flux<AnimeChunkAck> ingest(Flux<Anime> animes) {
+        return animes
+                .buffer(ingestChunkSize)
+                .index()
+                .flatMapSequential(chunk -> ingestChunk(chunk.getT1(), chunk.getT2()), ingestConcurrency);
+    }
+
+    private Mono<AnimeChunkAck> ingestChunk(long index, List<Anime> chunk) {
+        return insertAll(chunk)
+                .as(transactionalOperator::transactional)
+                .collectList()
+                .map(saved -> new AnimeChunkAck(index, saved.size(),
+                        saved.get(0).getId(), saved.get(saved.size() - 1).getId(), null))
+                .onErrorResume(ResponseStatusException.class,
+                        e -> Mono.just(new AnimeChunkAck(index, 0, null, null, e.getReason())));
+    }
+
+    // usado pela importação de CSV: os animes já foram validados, cada bloco vai na sua transação
+    public Mono<Integer> saveChunk(List<Anime> chunk) {
+        return insertAll(chunk)
+                .as(transactionalOperator::transactional)
+                .count()
+                .map(Long::intValue);
     }
 
     private void throwResponseStatusExceptionEmptyName(Anime anime) {
-        if (StringUtil.isNullOrEmpty(anime.getName())) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid Name");
+        if (!isValidName(anime.getName())) {
+            throw INVALID_NAME.exception();
         }
     }
 
+    public static boolean isValidName(String name) {
+        return !StringUtil.isNullOrEmpty(name);
+    }
+
+    // sem versão a escrita é incondicional; com versão só acontece se ninguém alterou o anime antes
     public Mono<Void> update(Anime anime) {
-        return findById(anime.getId())
-                .map(animeFound -> anime.withId(animeFound.getId())) //sem essa parte não commita o update
-                .flatMap(animeRepository::save)
-                .then();
+        Mono<Integer> updated = anime.getVersion() == null
+                ? animeRepository.updateName(anime.getId(), anime.getName())
+                : animeRepository.updateNameIfVersion(anime.getId(), anime.getName(), anime.getVersion());
+
+        return updated
+                .flatMap(rows -> rows > 0 ? Mono.<Void>empty() : notFoundOrPreconditionFailed(anime.getId(), anime.getVersion()))
+                .then(afterCommit(() -> afterWrite(anime)));
     }
 
     public Mono<Void> delete(int id) {
-        return findById(id)
-                .flatMap(animeRepository::delete);
+        return delete(id, null);
+    }
+
+    public Mono<Void> delete(int id, Integer version) {
+        Mono<Integer> deleted = version == null
+                ? animeRepository.remove(id)
+                : animeRepository.removeIfVersion(id, version);
+
+        return deleted
+                .flatMap(rows -> rows > 0 ? Mono.<Void>empty() : notFoundOrPreconditionFailed(id, version))
+                .then(afterCommit(() -> {
+                    collectionVersion.incrementAndGet();
+                    animeCache.invalidate(id);
+                    animeSearchIndex.remove(id);
+                }));
+    }
+
+    // só o caminho de falha faz a segunda consulta, para separar 404 de 412
+    private Mono<Void> notFoundOrPreconditionFailed(int id, Integer version) {
+        if (version == null) {
+            return monoResponseStatusNotFoundException();
+        }
+        return animeRepository.existsById(id)
+                .flatMap(exists -> exists
+                        ? Mono.<Void>error(ANIME_MODIFIED.exception())
+                        : monoResponseStatusNotFoundException());
+    }
+
+    // dentro de uma transação a ação espera o commit e não roda no rollback: antes disso uma leitura
+    // concorrente guardaria dados não confirmados sob o ETag novo e a busca acharia linhas desfeitas.
+    // Sem transação a escrita já foi confirmada quando chega aqui.
+    private Mono<Void> afterCommit(Runnable action) {
+        return TransactionSynchronizationManager.forCurrentTransaction()
+                .filter(TransactionSynchronizationManager::isSynchronizationActive)
+                .map(manager -> {
+                    manager.registerSynchronization(new TransactionSynchronization() {
+                        @Override
+                        public Mono<Void> afterCommit() {
+                            return Mono.fromRunnable(action);
+                        }
+                    });
+                    return true;
+                })
+                .onErrorResume(NoTransactionException.class, e -> Mono.empty())
+                .defaultIfEmpty(false)
+                .doOnNext(registered -> {
+                    if (!registered) {
+                        action.run();
+                    }
+                })
+                .then();
+    }
+
+    private void afterWrite(Anime saved) {
+        collectionVersion.incrementAndGet();
+        animeCache.invalidate(saved.getId());
+        animeSearchIndex.index(saved);
     }
 }
 
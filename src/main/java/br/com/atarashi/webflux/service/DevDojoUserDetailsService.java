@@ -1,21 +1,43 @@
 package br.com.atarashi.webflux.service;
 
 import br.com.atarashi.webflux.repository.DevDojoUserRepository;
-import lombok.RequiredArgsConstructor;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
 
-@RequiredArgsConstructor
+import java.time.Duration;
+
 @Service
 public class DevDojoUserDetailsService implements ReactiveUserDetailsService {
 
     private final DevDojoUserRepository devDojoUserRepository;
+    private final AsyncCache<String, UserDetails> principals;
+
+    public DevDojoUserDetailsService(DevDojoUserRepository devDojoUserRepository,
+                                     @Value("${security.cache.principal.maximum-size:1000}") long maximumSize,
+                                     @Value("${security.cache.principal.expire-after-write:5m}") Duration expireAfterWrite) {
+        this.devDojoUserRepository = devDojoUserRepository;
+        this.principals = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .buildAsync();
+    }
 
     @Override
     public Mono<UserDetails> findByUsername(String username) {
-        return devDojoUserRepository.findByUsername(username)
-                .cast(UserDetails.class);
+        return Mono.defer(() -> Mono.fromFuture(principals.get(username, (key, executor) ->
+                devDojoUserRepository.findByUsername(key)
+                        .cast(UserDetails.class)
+                        .toFuture())));
+    }
+
+    public CacheStats stats() {
+        return principals.synchronous().stats();
     }
 }
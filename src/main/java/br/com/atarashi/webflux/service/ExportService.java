@@ -0,0 +1,26 @@
+package br.com.atarashi.webflux.service;
+
+import br.com.atarashi.webflux.export.ExportFormat;
+import br.com.atarashi.webflux.export.RowExporter;
+import br.com.atarashi.webflux.repository.ExportRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+
+@Service
+@RequiredArgsConstructor
+public class ExportService {
+
+    private final ExportRepository exportRepository;
+    private final RowExporter rowExporter;
+
+    public Flux<DataBuffer> exportAnimes(ExportFormat format, boolean gzip, DataBufferFactory bufferFactory) {
+        return rowExporter.export(exportRepository.streamAnimes(), ExportRepository.ANIME_COLUMNS, format, gzip, bufferFactory);
+    }
+
+    public Flux<DataBuffer> exportGastos(ExportFormat format, boolean gzip, DataBufferFactory bufferFactory) {
+        return rowExporter.export(exportRepository.streamGastos(), ExportRepository.GASTO_COLUMNS, format, gzip, bufferFactory);
+    }
+}
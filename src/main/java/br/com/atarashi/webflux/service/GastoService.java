@@ -0,0 +1,364 @@
+package br.com.atarashi.webflux.service;
+
+import br.com.atarashi.webflux.cache.GastoTagInterner;
+import br.com.atarashi.webflux.domain.Gasto;
+import br.com.atarashi.webflux.domain.GastoTags;
+import br.com.atarashi.webflux.domain.GastoTotal;
+import br.com.atarashi.webflux.domain.GastoTotalsDelta;
+import br.com.atarashi.webflux.domain.GastoTotalsRebuild;
+import br.com.atarashi.webflux.exception.PrebuiltError;
+import br.com.atarashi.webflux.repository.GastoRepository;
+import br.com.atarashi.webflux.repository.GastoTagRepository;
+import br.com.atarashi.webflux.repository.GastoTotalsRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+@Service
+@Slf4j
+public class GastoService implements DisposableBean {
+
+    private static final int STREAM_PREFETCH = 256;
+
+    private static final PrebuiltError GASTO_NOT_FOUND =
+            new PrebuiltError(HttpStatus.NOT_FOUND, "Expense not found");
+    private static final PrebuiltError TOTALS_REBUILDING =
+            new PrebuiltError(HttpStatus.SERVICE_UNAVAILABLE, "Expense totals are being rebuilt");
+    private static final PrebuiltError TOTALS_STALE =
+            new PrebuiltError(HttpStatus.SERVICE_UNAVAILABLE, "Expense totals are incomplete until a rebuild finishes");
+    private static final PrebuiltError WRITES_NOT_DRAINED =
+            new PrebuiltError(HttpStatus.SERVICE_UNAVAILABLE, "Expense writes did not finish in time for the rebuild");
+    private static final PrebuiltError REBUILD_NOT_FOUND =
+            new PrebuiltError(HttpStatus.NOT_FOUND, "No expense totals rebuild has run");
+
+    private static final Duration WRITES_DRAIN_POLL = Duration.ofMillis(10);
+    private static final Duration WRITES_DRAIN_TIMEOUT = Duration.ofSeconds(30);
+
+    // duas transações que criam a mesma linha de total ao mesmo tempo: a segunda falha na chave e é refeita
+    private static final Retry CONCURRENT_TOTALS_INSERT = Retry.max(3)
+            .filter(DataIntegrityViolationException.class::isInstance);
+
+    private final GastoRepository gastoRepository;
+    private final GastoTotalsRepository gastoTotalsRepository;
+    private final GastoTagRepository gastoTagRepository;
+    private final GastoTagInterner gastoTagInterner;
+    private final TransactionalOperator transactionalOperator;
+    private final int rebuildChunkSize;
+    private final int rebuildConcurrency;
+
+    // escritas e rebuild se excluem: a escrita se conta antes de olhar a flag e o rebuild liga a flag
+    // antes de esperar a contagem zerar, então uma das duas sempre enxerga a outra
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private final AtomicInteger writesInFlight = new AtomicInteger();
+    // ligada no início do rebuild e desligada só quando um rebuild termina bem: depois de uma falha
+    // ou de um cancelamento os totais e o índice de tags continuam pela metade
+    private final AtomicBoolean totalsStale = new AtomicBoolean();
+    private volatile GastoTotalsRebuildJob lastRebuild;
+    private volatile Disposable runningRebuild;
+
+    public GastoService(GastoRepository gastoRepository, GastoTotalsRepository gastoTotalsRepository,
+                        GastoTagRepository gastoTagRepository, GastoTagInterner gastoTagInterner,
+                        TransactionalOperator transactionalOperator,
+                        @Value("${gasto.totals.rebuild.chunk-size:10000}") int rebuildChunkSize,
+                        @Value("${gasto.totals.rebuild.concurrency:4}") int rebuildConcurrency) {
+        this.gastoRepository = gastoRepository;
+        this.gastoTotalsRepository = gastoTotalsRepository;
+        this.gastoTagRepository = gastoTagRepository;
+        this.gastoTagInterner = gastoTagInterner;
+        this.transactionalOperator = transactionalOperator;
+        this.rebuildChunkSize = rebuildChunkSize;
+        this.rebuildConcurrency = rebuildConcurrency;
+    }
+
+    public Mono<Gasto> findById(long id) {
+        return gastoRepository.findById(id)
+                .switchIfEmpty(Mono.defer(() -> Mono.error(GASTO_NOT_FOUND.exception())));
+    }
+
+    // período semiaberto: from inclusive, to exclusive
+    public Flux<Gasto> findByPeriod(LocalDate from, LocalDate to) {
+        return gastoRepository.findByDataRange(from.atStartOfDay(), to.atStartOfDay())
+                .limitRate(STREAM_PREFETCH);
+    }
+
+    // gastos com todas as tags; uma tag que nunca foi usada não tem gasto nenhum
+    public Flux<Gasto> findByPeriodAndTags(LocalDate from, LocalDate to, List<String> tags) {
+        if (tags.isEmpty()) {
+            return findByPeriod(from, to);
+        }
+        return unlessStale(() -> Flux.fromIterable(tags)
+                .concatMap(gastoTagInterner::find)
+                .collectList()
+                .filter(tagIds -> tagIds.size() == tags.size())
+                .flatMapMany(tagIds -> gastoRepository.findByTagsAndDataRange(tagIds, from.atStartOfDay(), to.atStartOfDay()))
+                .limitRate(STREAM_PREFETCH));
+    }
+
+    // o gasto, os totais e as tags mudam juntos ou não mudam; as tags novas entram no dicionário antes
+    public Mono<Gasto> save(Gasto gasto) {
+        return write(gastoTagInterner.intern(GastoTags.split(gasto.getTags()))
+                .flatMap(tagIds -> gastoRepository.save(gasto.withId(null))
+                        .flatMap(saved -> gastoTotalsRepository.apply(new GastoTotalsDelta().add(saved))
+                                .then(gastoTagRepository.link(saved.getId(), saved.getData(), tagIds))
+                                .thenReturn(saved))
+                        .as(transactionalOperator::transactional))
+                .retryWhen(CONCURRENT_TOTALS_INSERT));
+    }
+
+    public Mono<Void> update(Gasto gasto) {
+        return write(gastoTagInterner.intern(GastoTags.split(gasto.getTags()))
+                .flatMap(tagIds -> gastoRepository.findByIdForUpdate(gasto.getId())
+                        .switchIfEmpty(Mono.defer(() -> Mono.error(GASTO_NOT_FOUND.exception())))
+                        .flatMap(current -> gastoRepository.update(gasto.getId(), gasto.getNome(), gasto.getDescricao(), gasto.getData(), gasto.getValor(), gasto.getTags())
+                                .then(gastoTotalsRepository.apply(new GastoTotalsDelta().remove(current).add(gasto)))
+                                .then(gastoTagRepository.unlink(gasto.getId()))
+                                .then(gastoTagRepository.link(gasto.getId(), gasto.getData(), tagIds)))
+                        .as(transactionalOperator::transactional))
+                .retryWhen(CONCURRENT_TOTALS_INSERT));
+    }
+
+    public Mono<Void> delete(long id) {
+        return write(gastoRepository.findByIdForUpdate(id)
+                .switchIfEmpty(Mono.defer(() -> Mono.error(GASTO_NOT_FOUND.exception())))
+                .flatMap(current -> gastoTagRepository.unlink(id)
+                        .then(gastoRepository.remove(id))
+                        .then(gastoTotalsRepository.apply(new GastoTotalsDelta().remove(current))))
+                .as(transactionalOperator::transactional)
+                .retryWhen(CONCURRENT_TOTALS_INSERT));
+    }
+
+    // a escrita só começa fora de um rebuild e fica contada até a sua transação terminar
+    private <T> Mono<T> write(Mono<T> write) {
+        return Mono.defer(() -> {
+            writesInFlight.incrementAndGet();
+            if (rebuilding.get()) {
+                writesInFlight.decrementAndGet();
+                return Mono.error(TOTALS_REBUILDING.exception());
+            }
+            return write.doFinally(signal -> writesInFlight.decrementAndGet());
+        });
+    }
+
+    // durante o rebuild, e depois de um que não terminou, os totais e o índice de tags estão pela metade
+    private <T> Flux<T> unlessStale(Supplier<Flux<T>> query) {
+        return Flux.defer(() -> {
+            if (!totalsStale.get()) {
+                return query.get();
+            }
+            return Flux.error(rebuilding.get() ? TOTALS_REBUILDING.exception() : TOTALS_STALE.exception());
+        });
+    }
+
+    public Flux<GastoTotal> totalsPerDay(LocalDate from, LocalDate to) {
+        return unlessStale(() -> gastoTotalsRepository.findDays(from, to));
+    }
+
+    // meses inteiros vêm da tabela mensal; os pedaços de mês nas pontas do período são somados
+    // a partir da tabela diária, no máximo 31 linhas de cada lado
+    public Flux<GastoTotal> totalsPerMonth(LocalDate from, LocalDate to) {
+        return unlessStale(() -> monthlyTotals(from, to));
+    }
+
+    private Flux<GastoTotal> monthlyTotals(LocalDate from, LocalDate to) {
+        LocalDate firstFullMonth = from.getDayOfMonth() == 1 ? from : from.withDayOfMonth(1).plusMonths(1);
+        LocalDate endOfFullMonths = to.withDayOfMonth(1);
+        if (!firstFullMonth.isBefore(endOfFullMonths)) {
+            return monthsFromDays(from, to);
+        }
+        return Flux.concat(monthsFromDays(from, firstFullMonth),
+                gastoTotalsRepository.findMonths(firstFullMonth, endOfFullMonths),
+                monthsFromDays(endOfFullMonths, to));
+    }
+
+    // os dias chegam em ordem, então cada janela é um mês inteiro
+    private Flux<GastoTotal> monthsFromDays(LocalDate from, LocalDate to) {
+        return gastoTotalsRepository.findDays(from, to)
+                .windowUntilChanged(day -> month(day.getKey()))
+                .concatMap(window -> window.reduceWith(Accumulator::new, (accumulator, day) ->
+                        accumulator.add(month(day.getKey()), day.getCount(), day.getTotal())))
+                .filter(Accumulator::hasEntries)
+                .map(Accumulator::toTotal);
+    }
+
+    // chave diária no formato yyyy-MM-dd
+    private static String month(String day) {
+        return day.substring(0, 7);
+    }
+
+    public Flux<GastoTotal> totalsPerTag(LocalDate from, LocalDate to) {
+        return unlessStale(() -> gastoTotalsRepository.findTags(from, to));
+    }
+
+    // Recalcula os totais e o índice de tags a partir de GASTO. Roda como um job, separado da requisição
+    // que o pediu: a resposta traz o status inicial e o progresso fica em findRebuild. Parte do zero, então
+    // novas escritas e os relatórios respondem 503 e o rebuild só começa depois que as escritas já em
+    // andamento terminam.
+    public Mono<GastoTotalsRebuild> rebuildTotals() {
+        return Mono.fromSupplier(() -> {
+            if (!rebuilding.compareAndSet(false, true)) {
+                throw TOTALS_REBUILDING.exception();
+            }
+            totalsStale.set(true);
+            GastoTotalsRebuildJob job = new GastoTotalsRebuildJob();
+            lastRebuild = job;
+            runningRebuild = awaitWritesDrained()
+                    .then(rebuildFromScratch(job))
+                    .doOnSuccess(unused -> {
+                        totalsStale.set(false);
+                        rebuilding.set(false);
+                        job.complete();
+                    })
+                    .doOnError(e -> job.fail(reason(e)))
+                    .doOnCancel(() -> job.fail("Rebuild cancelled"))
+                    .doFinally(signal -> rebuilding.set(false))
+                    // o erro já ficou no job
+                    .onErrorResume(e -> Mono.empty())
+                    .subscribe();
+            return job.snapshot();
+        });
+    }
+
+    public Mono<GastoTotalsRebuild> findRebuild() {
+        return Mono.fromSupplier(() -> lastRebuild)
+                .map(GastoTotalsRebuildJob::snapshot)
+                .switchIfEmpty(Mono.defer(() -> Mono.error(REBUILD_NOT_FOUND.exception())));
+    }
+
+    private static String reason(Throwable error) {
+        if (error instanceof ResponseStatusException) {
+            return ((ResponseStatusException) error).getReason();
+        }
+        log.warn("Expense totals rebuild failed", error);
+        return "Unexpected error while rebuilding; reports stay unavailable until a rebuild finishes";
+    }
+
+    private Mono<Void> awaitWritesDrained() {
+        return Mono.fromSupplier(writesInFlight::get)
+                .filter(writes -> writes == 0)
+                .repeatWhenEmpty(attempts -> attempts.delayElements(WRITES_DRAIN_POLL))
+                .timeout(WRITES_DRAIN_TIMEOUT, Mono.defer(() -> Mono.error(WRITES_NOT_DRAINED.exception())))
+                .then();
+    }
+
+    // Os blocos de ids são lidos e somados em paralelo, em memória. As escritas passam por um único
+    // escritor: as ligações de tag de cada bloco na sua transação e, no fim, os totais de todos os blocos
+    // somados, apagados e regravados numa transação só, com as linhas em ordem de chave.
+    private Mono<Void> rebuildFromScratch(GastoTotalsRebuildJob job) {
+        return gastoTagRepository.clear()
+                .then(gastoRepository.findMaxId())
+                .flatMapMany(maxId -> Flux.range(0, (int) ((maxId + rebuildChunkSize - 1) / rebuildChunkSize)))
+                .flatMap(chunk -> readChunk(chunk * (long) rebuildChunkSize + 1, (chunk + 1) * (long) rebuildChunkSize + 1),
+                        rebuildConcurrency)
+                .concatMap(chunk -> linkTags(chunk)
+                        .as(transactionalOperator::transactional)
+                        .thenReturn(chunk.delta), rebuildConcurrency)
+                .doOnNext(delta -> job.addChunk(delta.getRows()))
+                .reduceWith(GastoTotalsDelta::new, GastoTotalsDelta::merge)
+                .flatMap(totals -> gastoTotalsRepository.clear()
+                        .then(gastoTotalsRepository.apply(totals))
+                        .as(transactionalOperator::transactional))
+                .doOnSuccess(unused -> log.info("Expense totals rebuilt from {} rows", job.snapshot().getRows()));
+    }
+
+    private Mono<RebuildChunk> readChunk(long fromId, long toId) {
+        return gastoRepository.streamEntries(fromId, toId)
+                .limitRate(STREAM_PREFETCH)
+                .collectList()
+                .flatMap(entries -> internTags(entries)
+                        .map(tagIds -> new RebuildChunk(entries, tagIds)));
+    }
+
+    // as tags novas são confirmadas na transação própria do intern; feito antes de abrir a do bloco,
+    // o intern não segura uma segunda conexão do pool enquanto a do bloco está aberta
+    private Mono<Map<String, Long>> internTags(List<Gasto> entries) {
+        List<String> tags = entries.stream()
+                .filter(entry -> entry.getData() != null)
+                .flatMap(entry -> GastoTags.split(entry.getTags()).stream())
+                .distinct()
+                .collect(Collectors.toList());
+        return gastoTagInterner.intern(tags)
+                .map(ids -> {
+                    Map<String, Long> tagIds = new HashMap<>();
+                    for (int i = 0; i < tags.size(); i++) {
+                        tagIds.put(tags.get(i), ids.get(i));
+                    }
+                    return tagIds;
+                });
+    }
+
+    private Mono<Void> linkTags(RebuildChunk chunk) {
+        return Flux.fromIterable(chunk.entries)
+                .concatMap(entry -> linkTags(entry, chunk.tagIds))
+                .then();
+    }
+
+    private Mono<Void> linkTags(Gasto entry, Map<String, Long> tagIds) {
+        List<String> tags = GastoTags.split(entry.getTags());
+        if (tags.isEmpty() || entry.getData() == null) {
+            return Mono.empty();
+        }
+        return gastoTagRepository.link(entry.getId(), entry.getData(),
+                tags.stream().map(tagIds::get).collect(Collectors.toList()));
+    }
+
+    @Override
+    public void destroy() {
+        Disposable rebuild = runningRebuild;
+        if (rebuild != null) {
+            rebuild.dispose();
+        }
+    }
+
+    private static final class RebuildChunk {
+        private final List<Gasto> entries;
+        private final Map<String, Long> tagIds;
+        private final GastoTotalsDelta delta = new GastoTotalsDelta();
+
+        private RebuildChunk(List<Gasto> entries, Map<String, Long> tagIds) {
+            this.entries = entries;
+            this.tagIds = tagIds;
+            entries.forEach(delta::add);
+        }
+    }
+
+    private static final class Accumulator {
+        private String key;
+        private long count;
+        private BigDecimal total = BigDecimal.ZERO;
+
+        private Accumulator add(String key, long count, BigDecimal total) {
+            this.key = key;
+            this.count += count;
+            this.total = this.total.add(total);
+            return this;
+        }
+
+        private boolean hasEntries() {
+            return count > 0;
+        }
+
+        private GastoTotal toTotal() {
+            return new GastoTotal(key, count, total);
+        }
+    }
+}
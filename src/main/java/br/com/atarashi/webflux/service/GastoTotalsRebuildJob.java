@@ -0,0 +1,53 @@
+package br.com.atarashi.webflux.service;
+
+import br.com.atarashi.webflux.domain.GastoTotalsRebuild;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Progresso de um rebuild dos totais. Só o pipeline do rebuild escreve, mas o status pode ser lido
+// a qualquer momento por outra requisição, então tudo aqui é atômico ou volátil.
+final class GastoTotalsRebuildJob {
+
+    private final Instant startedAt = Instant.now();
+    private final AtomicLong chunks = new AtomicLong();
+    private final AtomicLong rows = new AtomicLong();
+
+    private volatile GastoTotalsRebuild.State state = GastoTotalsRebuild.State.RUNNING;
+    private volatile Instant finishedAt;
+    private volatile String error;
+
+    void addChunk(long chunkRows) {
+        chunks.incrementAndGet();
+        rows.addAndGet(chunkRows);
+    }
+
+    void complete() {
+        finish(GastoTotalsRebuild.State.COMPLETED, null);
+    }
+
+    void fail(String reason) {
+        finish(GastoTotalsRebuild.State.FAILED, reason);
+    }
+
+    // o primeiro desfecho vale: um cancelamento depois de um erro não apaga o motivo
+    private synchronized void finish(GastoTotalsRebuild.State finalState, String reason) {
+        if (state != GastoTotalsRebuild.State.RUNNING) {
+            return;
+        }
+        error = reason;
+        finishedAt = Instant.now();
+        state = finalState;
+    }
+
+    GastoTotalsRebuild snapshot() {
+        return GastoTotalsRebuild.builder()
+                .state(state)
+                .startedAt(startedAt)
+                .finishedAt(finishedAt)
+                .chunks(chunks.get())
+                .rows(rows.get())
+                .error(error)
+                .build();
+    }
+}
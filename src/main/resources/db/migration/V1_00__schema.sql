@@ -0,0 +1,4 @@
+CREATE TABLE ANIME(ID INT AUTO_INCREMENT PRIMARY KEY, NAME VARCHAR NOT NULL);
+CREATE INDEX IDX_ANIME_NAME ON ANIME(NAME);
+CREATE TABLE DEVDOJO_USER(ID INT AUTO_INCREMENT PRIMARY KEY, NAME VARCHAR, USERNAME VARCHAR NOT NULL, PASSWORD VARCHAR NOT NULL, AUTHORITIES VARCHAR);
+CREATE UNIQUE INDEX UK_DEVDOJO_USER_USERNAME ON DEVDOJO_USER(USERNAME);
@@ -0,0 +1 @@
+ALTER TABLE ANIME ADD COLUMN VERSION INT NOT NULL DEFAULT 0;
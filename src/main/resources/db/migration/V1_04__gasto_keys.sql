@@ -0,0 +1,2 @@
+ALTER TABLE GASTO ADD PRIMARY KEY (ID);
+CREATE INDEX IDX_GASTO_DATA ON GASTO(DATA);
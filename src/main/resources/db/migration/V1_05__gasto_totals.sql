@@ -0,0 +1,11 @@
+CREATE TABLE GASTO_TOTAL_DIA(DIA DATE PRIMARY KEY, QUANTIDADE BIGINT NOT NULL, TOTAL DECIMAL(19,2) NOT NULL);
+CREATE TABLE GASTO_TOTAL_MES(MES DATE PRIMARY KEY, QUANTIDADE BIGINT NOT NULL, TOTAL DECIMAL(19,2) NOT NULL);
+CREATE TABLE GASTO_TOTAL_TAG(TAG VARCHAR NOT NULL, DIA DATE NOT NULL, QUANTIDADE BIGINT NOT NULL, TOTAL DECIMAL(19,2) NOT NULL, PRIMARY KEY (TAG, DIA));
+CREATE INDEX IDX_GASTO_TOTAL_TAG_DIA ON GASTO_TOTAL_TAG(DIA);
+INSERT INTO GASTO_TOTAL_DIA(DIA, QUANTIDADE, TOTAL)
+    SELECT CAST(DATA AS DATE), COUNT(*), COALESCE(SUM(VALOR), 0) FROM GASTO WHERE DATA IS NOT NULL GROUP BY CAST(DATA AS DATE);
+INSERT INTO GASTO_TOTAL_MES(MES, QUANTIDADE, TOTAL)
+    SELECT G.MES, COUNT(*), COALESCE(SUM(G.VALOR), 0)
+    FROM (SELECT CAST(DATEADD('DAY', 1 - DAY_OF_MONTH(DATA), CAST(DATA AS DATE)) AS DATE) AS MES, VALOR FROM GASTO WHERE DATA IS NOT NULL) G
+    GROUP BY G.MES;
+-- GASTO_TOTAL_TAG precisa separar a coluna TAGS e é preenchida por POST /gastos/report/rebuild
@@ -0,0 +1,6 @@
+CREATE TABLE TAG(ID BIGINT AUTO_INCREMENT PRIMARY KEY, NOME VARCHAR NOT NULL, CONSTRAINT UK_TAG_NOME UNIQUE (NOME));
+CREATE TABLE GASTO_TAG(TAG_ID BIGINT NOT NULL, DATA TIMESTAMP NOT NULL, GASTO_ID BIGINT NOT NULL,
+    PRIMARY KEY (TAG_ID, DATA, GASTO_ID),
+    CONSTRAINT FK_GASTO_TAG_TAG FOREIGN KEY (TAG_ID) REFERENCES TAG(ID),
+    CONSTRAINT FK_GASTO_TAG_GASTO FOREIGN KEY (GASTO_ID) REFERENCES GASTO(ID));
+CREATE INDEX IDX_GASTO_TAG_GASTO ON GASTO_TAG(GASTO_ID);
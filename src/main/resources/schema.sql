@@ -1,2 +0,0 @@
-CREATE TABLE ANIME(ID BIGINT AUTO_INCREMENT, NAME VARCHAR);
-CREATE TABLE DEVDOJO_USER(ID BIGINT AUTO_INCREMENT, NAME VARCHAR, USERNAME VARCHAR, PASSWORD VARCHAR, AUTHORITIES VARCHAR);
\ No newline at end of file
@@ -0,0 +1,102 @@
+package br.com.atarashi.webflux.admission;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveConcurrencyLimitTest {
+
+    private static final long THRESHOLD = TimeUnit.MILLISECONDS.toNanos(100);
+
+    @Test
+    @DisplayName("tryAcquire refuses once the limit is reached and admits again after release")
+    public void tryAcquire_RefusesAtLimit_UntilReleased() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(2, 1, 10, THRESHOLD);
+
+        assertTrue(limit.tryAcquire());
+        assertTrue(limit.tryAcquire());
+        assertFalse(limit.tryAcquire());
+
+        limit.release();
+
+        assertTrue(limit.tryAcquire());
+        assertEquals(2, limit.getInFlight());
+    }
+
+    @Test
+    @DisplayName("onSample shrinks the limit when latency exceeds the threshold, never below the minimum")
+    public void onSample_ShrinksLimit_WhenLatencyIsTooHigh() {
+        AtomicLong clock = new AtomicLong();
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 8, 20, THRESHOLD, clock::get);
+
+        limit.onSample(THRESHOLD * 2, false);
+        assertEquals(9, limit.getLimit());
+
+        clock.addAndGet(THRESHOLD);
+        limit.onSample(0, true);
+        clock.addAndGet(THRESHOLD);
+        limit.onSample(0, true);
+        assertEquals(8, limit.getLimit());
+    }
+
+    @Test
+    @DisplayName("onSample shrinks the limit only once per latency window when many slow samples arrive together")
+    public void onSample_ShrinksLimitOncePerWindow_WhenManySlowSamplesArriveConcurrently() throws InterruptedException {
+        AtomicLong clock = new AtomicLong();
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(100, 8, 200, THRESHOLD, clock::get);
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            for (int i = 0; i < threads; i++) {
+                executor.execute(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    for (int sample = 0; sample < 1_000; sample++) {
+                        limit.onSample(THRESHOLD * 2, sample % 2 == 0);
+                    }
+                });
+            }
+            start.countDown();
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(90, limit.getLimit());
+
+        clock.addAndGet(THRESHOLD - 1);
+        limit.onSample(THRESHOLD * 2, false);
+        assertEquals(90, limit.getLimit());
+
+        clock.addAndGet(1);
+        limit.onSample(THRESHOLD * 2, false);
+        assertEquals(81, limit.getLimit());
+    }
+
+    @Test
+    @DisplayName("onSample grows the limit only while it is being used, never above the maximum")
+    public void onSample_GrowsLimit_WhenUsedAndFast() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(2, 1, 3, THRESHOLD);
+
+        limit.onSample(0, false);
+        assertEquals(2, limit.getLimit());
+
+        limit.tryAcquire();
+        limit.onSample(0, false);
+        limit.onSample(0, false);
+        assertEquals(3, limit.getLimit());
+    }
+}
@@ -0,0 +1,50 @@
+package br.com.atarashi.webflux.admission;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExportLimiterTest {
+
+    @Test
+    @DisplayName("tryAcquire rejects a second export from the same client while the first is running")
+    public void tryAcquire_RejectsClient_WhenClientLimitIsReached() {
+        ExportLimiter limiter = new ExportLimiter(4, 1);
+
+        assertTrue(limiter.tryAcquire("gustavo"));
+        assertFalse(limiter.tryAcquire("gustavo"));
+        assertTrue(limiter.tryAcquire("carlos"));
+
+        limiter.release("gustavo");
+
+        assertTrue(limiter.tryAcquire("gustavo"));
+    }
+
+    @Test
+    @DisplayName("tryAcquire rejects every client once the global limit is reached")
+    public void tryAcquire_RejectsAnyClient_WhenGlobalLimitIsReached() {
+        ExportLimiter limiter = new ExportLimiter(2, 2);
+
+        assertTrue(limiter.tryAcquire("gustavo"));
+        assertTrue(limiter.tryAcquire("carlos"));
+        assertFalse(limiter.tryAcquire("william"));
+
+        limiter.release("carlos");
+
+        assertTrue(limiter.tryAcquire("william"));
+    }
+
+    @Test
+    @DisplayName("tryAcquire does not hold a global slot when the client limit rejects the export")
+    public void tryAcquire_ReleasesGlobalSlot_WhenClientLimitRejects() {
+        ExportLimiter limiter = new ExportLimiter(2, 1);
+
+        assertTrue(limiter.tryAcquire("gustavo"));
+        assertFalse(limiter.tryAcquire("gustavo"));
+        assertFalse(limiter.tryAcquire("gustavo"));
+
+        assertTrue(limiter.tryAcquire("carlos"));
+    }
+}
@@ -0,0 +1,46 @@
+package br.com.atarashi.webflux.admission;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    @DisplayName("tryAcquire admits the whole burst at once and then asks to wait one emission interval")
+    public void tryAcquire_AdmitsBurst_ThenReturnsWait() {
+        TokenBucket bucket = new TokenBucket(10, 3, 0);
+
+        assertEquals(0, bucket.tryAcquire(0));
+        assertEquals(0, bucket.tryAcquire(0));
+        assertEquals(0, bucket.tryAcquire(0));
+        assertEquals(SECOND / 10, bucket.tryAcquire(0));
+    }
+
+    @Test
+    @DisplayName("tryAcquire admits again once the emission interval has elapsed")
+    public void tryAcquire_AdmitsAgain_WhenIntervalHasElapsed() {
+        TokenBucket bucket = new TokenBucket(10, 1, 0);
+
+        assertEquals(0, bucket.tryAcquire(0));
+        assertTrue(bucket.tryAcquire(SECOND / 20) > 0);
+        assertEquals(0, bucket.tryAcquire(SECOND / 10));
+    }
+
+    @Test
+    @DisplayName("tryAcquire does not accumulate more than the burst while idle")
+    public void tryAcquire_CapsTokens_WhenIdle() {
+        TokenBucket bucket = new TokenBucket(10, 2, 0);
+        long later = 60 * SECOND;
+
+        assertEquals(0, bucket.tryAcquire(later));
+        assertEquals(0, bucket.tryAcquire(later));
+        assertTrue(bucket.tryAcquire(later) > 0);
+    }
+}
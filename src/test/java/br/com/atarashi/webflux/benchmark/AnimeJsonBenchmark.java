@@ -0,0 +1,62 @@
+package br.com.atarashi.webflux.benchmark;
+
+import br.com.atarashi.webflux.domain.Anime;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// mvn -Pbenchmark -DskipTests verify -Djmh.include=AnimeJsonBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnimeJsonBenchmark {
+
+    private static final TypeReference<List<Anime>> ANIME_LIST = new TypeReference<List<Anime>>() {
+    };
+
+    @Param({"10", "100"})
+    private int size;
+
+    // mesma configuração que o Spring Boot aplica ao ObjectMapper dos codecs
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private List<Anime> animes;
+    private byte[] json;
+
+    @Setup
+    public void setUp() throws IOException {
+        animes = new ArrayList<>(size);
+        for (int id = 1; id <= size; id++) {
+            animes.add(Anime.builder().id(id).name("Tensei Shittara Slime Datta Ken " + id).version(0).build());
+        }
+        json = objectMapper.writeValueAsBytes(animes);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return objectMapper.writeValueAsBytes(animes);
+    }
+
+    @Benchmark
+    public List<Anime> deserialize() throws IOException {
+        return objectMapper.readValue(json, ANIME_LIST);
+    }
+}
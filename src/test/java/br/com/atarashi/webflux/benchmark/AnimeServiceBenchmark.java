@@ -0,0 +1,71 @@
+package br.com.atarashi.webflux.benchmark;
+
+import br.com.atarashi.webflux.cache.AnimeCache;
+import br.com.atarashi.webflux.domain.Anime;
+import br.com.atarashi.webflux.service.AnimeService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// mvn -Pbenchmark -DskipTests verify -Djmh.include=AnimeServiceBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AnimeServiceBenchmark {
+
+    private static final int BATCH_SIZE = 10;
+
+    private ApplicationState application;
+    private AnimeService animeService;
+    private AnimeCache animeCache;
+    private List<Anime> batch;
+
+    @Setup(Level.Trial)
+    public void setUp(ApplicationState application) {
+        this.application = application;
+        animeService = application.getBean(AnimeService.class);
+        animeCache = application.getBean(AnimeCache.class);
+        batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            batch.add(Anime.builder().name("Benchmark " + i).build());
+        }
+    }
+
+    // remove o que o saveAll inseriu para o banco não crescer entre as iterações
+    @Setup(Level.Iteration)
+    public void cleanUp() {
+        application.databaseClient.execute("DELETE FROM anime WHERE name LIKE 'Benchmark %'")
+                .fetch().rowsUpdated().block();
+    }
+
+    @Benchmark
+    public Anime findByIdCached() {
+        return animeService.findById(1).block();
+    }
+
+    @Benchmark
+    public Anime findByIdUncached() {
+        animeCache.invalidate(1);
+        return animeService.findById(1).block();
+    }
+
+    @Benchmark
+    public List<Anime> saveAll() {
+        return animeService.saveAll(batch).collectList().block();
+    }
+}
@@ -0,0 +1,46 @@
+package br.com.atarashi.webflux.benchmark;
+
+import br.com.atarashi.webflux.SpringWebfluxEssentialsApplication;
+import br.com.atarashi.webflux.util.WebTestClientUtil;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.r2dbc.core.DatabaseClient;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+// Sobe a aplicação completa (H2 em memória, pool, Flyway, segurança) uma vez por fork do JMH.
+@State(Scope.Benchmark)
+public class ApplicationState {
+
+    ConfigurableApplicationContext context;
+    WebTestClient adminClient;
+    DatabaseClient databaseClient;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = new SpringApplicationBuilder(SpringWebfluxEssentialsApplication.class)
+                .web(WebApplicationType.REACTIVE)
+                .properties("server.port=0",
+                        "webclientexample.postsapi.h2-console-port=0",
+                        "spring.devtools.restart.enabled=false",
+                        "database.pool.register-jmx=false",
+                        "logging.level.org.springframework.data.r2dbc=INFO")
+                .run();
+        adminClient = new WebTestClientUtil(context).authenticateClient("gustavo", "devdojo");
+        databaseClient = context.getBean(DatabaseClient.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+}
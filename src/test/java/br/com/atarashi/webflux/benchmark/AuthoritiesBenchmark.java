@@ -0,0 +1,41 @@
+package br.com.atarashi.webflux.benchmark;
+
+import br.com.atarashi.webflux.domain.DevDojoUser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.concurrent.TimeUnit;
+
+// mvn -Pbenchmark -DskipTests verify -Djmh.include=AuthoritiesBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AuthoritiesBenchmark {
+
+    private final DevDojoUser user = new DevDojoUser(1, "Gustavo", "gustavo", "{bcrypt}", "ROLE_ADMIN,ROLE_USER");
+
+    @Benchmark
+    public int getAuthorities() {
+        int size = 0;
+        for (GrantedAuthority authority : user.getAuthorities()) {
+            size += authority.getAuthority().length();
+        }
+        return size;
+    }
+
+    @Benchmark
+    public boolean hasRole() {
+        return user.hasRole("ADMIN");
+    }
+}
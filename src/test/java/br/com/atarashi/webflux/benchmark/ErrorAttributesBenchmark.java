@@ -0,0 +1,53 @@
+package br.com.atarashi.webflux.benchmark;
+
+import br.com.atarashi.webflux.exception.CustomAttributes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.web.error.ErrorAttributeOptions;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// mvn -Pbenchmark -DskipTests verify -Djmh.include=ErrorAttributesBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ErrorAttributesBenchmark {
+
+    private final CustomAttributes customAttributes = new CustomAttributes();
+    private ServerRequest request;
+
+    @Setup
+    public void setUp() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/animes/1"));
+        customAttributes.storeErrorInformation(new ResponseStatusException(HttpStatus.NOT_FOUND, "Anime not found"), exchange);
+        request = ServerRequest.create(exchange, HandlerStrategies.withDefaults().messageReaders());
+    }
+
+    @Benchmark
+    public Map<String, Object> getErrorAttributes() {
+        return customAttributes.getErrorAttributes(request, ErrorAttributeOptions.defaults());
+    }
+
+    @Benchmark
+    public ResponseStatusException createException() {
+        return new ResponseStatusException(HttpStatus.NOT_FOUND, "Anime not found");
+    }
+}
@@ -0,0 +1,69 @@
+package br.com.atarashi.webflux.benchmark;
+
+import io.r2dbc.h2.H2ConnectionFactory;
+import org.flywaydb.core.Flyway;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.r2dbc.core.DatabaseClient;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// mvn -Pbenchmark -DskipTests verify -Djmh.include=LookupBenchmark
+// mede findById e findByUsername com tabelas cada vez maiores; com os índices das migrações
+// a latência deve ficar praticamente constante entre os valores de rows
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LookupBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    private int rows;
+
+    private DatabaseClient client;
+
+    // um banco por valor de rows, preenchido de uma vez pelo próprio H2
+    @Setup(Level.Trial)
+    public void setUp() {
+        String databaseName = "lookup_benchmark_" + rows;
+        Flyway.configure()
+                .dataSource("jdbc:h2:mem:" + databaseName + ";DB_CLOSE_DELAY=-1", "sa", "")
+                .load()
+                .migrate();
+        client = DatabaseClient.create(H2ConnectionFactory.inMemory(databaseName));
+
+        client.execute("INSERT INTO anime(name) SELECT 'Anime ' || x FROM SYSTEM_RANGE(1, " + rows + ")")
+                .fetch().rowsUpdated().block();
+        client.execute("INSERT INTO devdojo_user(name, username, password, authorities) "
+                + "SELECT 'User ' || x, 'user' || x, 'x', 'ROLE_USER' FROM SYSTEM_RANGE(1, " + rows + ")")
+                .fetch().rowsUpdated().block();
+    }
+
+    @Benchmark
+    public Map<String, Object> findById() {
+        return client.execute("SELECT * FROM anime WHERE id = :id")
+                .bind("id", ThreadLocalRandom.current().nextInt(1, rows + 1))
+                .fetch().one().block();
+    }
+
+    @Benchmark
+    public Map<String, Object> findByUsername() {
+        return client.execute("SELECT * FROM devdojo_user WHERE username = :username")
+                .bind("username", "user" + ThreadLocalRandom.current().nextInt(1, rows + 1))
+                .fetch().one().block();
+    }
+}
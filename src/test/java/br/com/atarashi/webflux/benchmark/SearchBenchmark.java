@@ -0,0 +1,90 @@
+package br.com.atarashi.webflux.benchmark;
+
+import br.com.atarashi.webflux.domain.Anime;
+import br.com.atarashi.webflux.search.AnimeSearchIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// mvn -Pbenchmark -DskipTests verify -Djmh.include=SearchBenchmark
+// indexa títulos sintéticos e mede a latência de AnimeSearchIndex.search; SampleTime reporta os percentis
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+
+    private static final int TITLES = 300_000;
+    private static final int VOCABULARY = 20_000;
+    private static final int QUERIES = 1 << 16;
+    private static final int LIMIT = 10;
+
+    private final AnimeSearchIndex index = new AnimeSearchIndex();
+    private final String[] queries = new String[QUERIES];
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        String[] words = new String[VOCABULARY];
+        for (int i = 0; i < VOCABULARY; i++) {
+            words[i] = word(random);
+        }
+        for (int id = 1; id <= TITLES; id++) {
+            index.index(Anime.builder().id(id).name(title(random, words)).build());
+        }
+        // consultas geradas antes para o custo do Random não entrar na medição
+        for (int i = 0; i < QUERIES; i++) {
+            queries[i] = query(random, words);
+        }
+    }
+
+    @Benchmark
+    public List<Anime> search() {
+        String query = queries[next++ & (QUERIES - 1)];
+        return index.search(query, LIMIT);
+    }
+
+    // palavras com frequência enviesada, como em títulos reais
+    private static String title(Random random, String[] words) {
+        int size = 1 + random.nextInt(4);
+        StringBuilder title = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            int skewed = (int) (Math.pow(random.nextDouble(), 3) * words.length);
+            title.append(i == 0 ? "" : " ").append(words[skewed]);
+        }
+        return title.toString();
+    }
+
+    private static String query(Random random, String[] words) {
+        String word = words[(int) (Math.pow(random.nextDouble(), 3) * words.length)];
+        String prefix = word.substring(0, 1 + random.nextInt(word.length()));
+        if (random.nextInt(4) == 0) {
+            return words[random.nextInt(words.length)] + " " + prefix;
+        }
+        return prefix;
+    }
+
+    private static String word(Random random) {
+        int length = 3 + random.nextInt(7);
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,69 @@
+package br.com.atarashi.webflux.benchmark;
+
+import br.com.atarashi.webflux.domain.Anime;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpHeaders;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Filtros, segurança, controller, serviço e codecs num único round-trip via WebTestClient.
+// mvn -Pbenchmark -DskipTests verify -Djmh.include=WebStackBenchmark
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WebStackBenchmark {
+
+    @Benchmark
+    public Anime findById(ApplicationState application) {
+        return application.adminClient.get()
+                .uri("/animes/{id}", 1)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Anime.class)
+                .returnResult()
+                .getResponseBody();
+    }
+
+    @Benchmark
+    public byte[] findByIdNotModified(ApplicationState application) {
+        return application.adminClient.get()
+                .uri("/animes/{id}", 1)
+                .header(HttpHeaders.IF_NONE_MATCH, "\"0\"")
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectBody()
+                .returnResult()
+                .getResponseBody();
+    }
+
+    @Benchmark
+    public List<Anime> listAll(ApplicationState application) {
+        return application.adminClient.get()
+                .uri("/animes")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Anime.class)
+                .returnResult()
+                .getResponseBody();
+    }
+
+    @Benchmark
+    public byte[] notFound(ApplicationState application) {
+        return application.adminClient.get()
+                .uri("/animes/{id}", Integer.MAX_VALUE)
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody()
+                .returnResult()
+                .getResponseBody();
+    }
+}
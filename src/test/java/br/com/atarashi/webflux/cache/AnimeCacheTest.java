@@ -0,0 +1,43 @@
+package br.com.atarashi.webflux.cache;
+
+import br.com.atarashi.webflux.domain.Anime;
+import br.com.atarashi.webflux.util.AnimeCreator;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AnimeCacheTest {
+
+    private final Anime anime = AnimeCreator.createValidAnime();
+
+    @Test
+    @DisplayName("get keeps the shared load running for the other subscribers when one of them cancels")
+    public void get_KeepsSharedLoad_WhenOneSubscriberCancels() {
+        AnimeCache animeCache = new AnimeCache(100, Duration.ofMinutes(1));
+        AtomicInteger loads = new AtomicInteger();
+        Mono<Anime> slowLoad = Mono.delay(Duration.ofMillis(200)).thenReturn(anime);
+
+        Disposable cancelled = animeCache.get(1, id -> {
+            loads.incrementAndGet();
+            return slowLoad;
+        }).subscribe();
+        cancelled.dispose();
+
+        StepVerifier.create(animeCache.get(1, id -> {
+                    loads.incrementAndGet();
+                    return slowLoad;
+                }))
+                .expectSubscription()
+                .expectNext(anime)
+                .verifyComplete();
+
+        assertEquals(1, loads.get());
+    }
+}
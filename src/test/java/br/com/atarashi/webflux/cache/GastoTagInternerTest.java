@@ -0,0 +1,79 @@
+package br.com.atarashi.webflux.cache;
+
+import br.com.atarashi.webflux.repository.GastoTagRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.ReactiveTransaction;
+import org.springframework.transaction.ReactiveTransactionManager;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(SpringExtension.class)
+class GastoTagInternerTest {
+
+    private GastoTagInterner gastoTagInterner;
+
+    @Mock
+    private GastoTagRepository gastoTagRepositoryMock;
+
+    @Mock
+    private ReactiveTransactionManager transactionManagerMock;
+
+    @BeforeEach
+    public void setUp() {
+        gastoTagInterner = new GastoTagInterner(gastoTagRepositoryMock, transactionManagerMock, 100);
+
+        when(transactionManagerMock.getReactiveTransaction(any()))
+                .thenReturn(Mono.just(mock(ReactiveTransaction.class)));
+        when(transactionManagerMock.commit(any()))
+                .thenReturn(Mono.empty());
+        when(gastoTagRepositoryMock.insert(any()))
+                .thenReturn(Mono.empty());
+        when(gastoTagRepositoryMock.findId("casa"))
+                .thenReturn(Mono.just(7L));
+        when(gastoTagRepositoryMock.findId("nunca-usada"))
+                .thenReturn(Mono.empty());
+    }
+
+    @Test
+    @DisplayName("intern answers from the cache once the tag id is known")
+    public void intern_ReturnCachedId_WhenTagWasInterned() {
+        StepVerifier.create(gastoTagInterner.intern(List.of("casa", "casa")))
+                .expectSubscription()
+                .expectNext(List.of(7L, 7L))
+                .verifyComplete();
+
+        StepVerifier.create(gastoTagInterner.find("casa"))
+                .expectSubscription()
+                .expectNext(7L)
+                .verifyComplete();
+
+        verify(gastoTagRepositoryMock, times(1)).findId("casa");
+    }
+
+    @Test
+    @DisplayName("find returns empty and keeps asking the database when the tag was never used")
+    public void find_ReturnEmptyMono_WhenTagWasNeverUsed() {
+        StepVerifier.create(gastoTagInterner.find("nunca-usada"))
+                .expectSubscription()
+                .verifyComplete();
+
+        StepVerifier.create(gastoTagInterner.find("nunca-usada"))
+                .expectSubscription()
+                .verifyComplete();
+
+        verify(gastoTagRepositoryMock, times(2)).findId("nunca-usada");
+    }
+}
@@ -1,12 +1,16 @@
 package br.com.atarashi.webflux.controller;
 
 import br.com.atarashi.webflux.domain.Anime;
+import br.com.atarashi.webflux.domain.AnimeChunkAck;
+import br.com.atarashi.webflux.domain.AnimePage;
 import br.com.atarashi.webflux.service.AnimeService;
 import br.com.atarashi.webflux.util.AnimeCreator;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import reactor.blockhound.BlockHound;
 import reactor.blockhound.BlockingOperationError;
@@ -19,8 +23,13 @@ import java.util.List;
 import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(SpringExtension.class)
@@ -32,6 +41,9 @@ class AnimeControllerTest {
     @Mock
     private AnimeService animeServiceMock;
 
+    @Mock
+    private AnimeBatchReader animeBatchReaderMock;
+
     private final Anime anime = AnimeCreator.createValidAnime();
 
     @BeforeAll
@@ -44,9 +56,18 @@ class AnimeControllerTest {
         when(animeServiceMock.findAll())
                 .thenReturn(Flux.just(anime));
 
+        when(animeServiceMock.streamAll())
+                .thenReturn(Flux.just(anime));
+
+        when(animeServiceMock.search(anyString(), anyInt()))
+                .thenReturn(Flux.just(anime));
+
         when(animeServiceMock.findById(anyInt()))
                 .thenReturn(Mono.just(anime));
 
+        when(animeServiceMock.findPage(anyInt(), anyInt()))
+                .thenReturn(Mono.just(new AnimePage(List.of(anime), null)));
+
         when(animeServiceMock.save(AnimeCreator.createAnimeToBeSaved()))
                 .thenReturn(Mono.just(anime));
 
@@ -54,7 +75,10 @@ class AnimeControllerTest {
                 .saveAll(List.of(AnimeCreator.createAnimeToBeSaved(), AnimeCreator.createAnimeToBeSaved())))
                 .thenReturn(Flux.just(anime, anime));
 
-        when(animeServiceMock.delete(anyInt()))
+        when(animeServiceMock.ingest(any()))
+                .thenReturn(Flux.just(new AnimeChunkAck(0, 2, anime.getId(), anime.getId(), null)));
+
+        when(animeServiceMock.delete(anyInt(), any()))
                 .thenReturn(Mono.empty());
 
         when(animeServiceMock.update(AnimeCreator.createValidAnime()))
@@ -81,21 +105,65 @@ class AnimeControllerTest {
     @Test
     @DisplayName("findAll returns a flux of anime")
     public void listAll_ReturnFluxOfAnime_WhenSuccessful() {
-        StepVerifier.create(animeController.listAll())
+        StepVerifier.create(animeController.listAll().flatMapMany(ResponseEntity::getBody))
+                .expectSubscription()
+                .expectNext(anime)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("streamAll returns a flux of anime")
+    public void streamAll_ReturnFluxOfAnime_WhenSuccessful() {
+        StepVerifier.create(animeController.streamAll())
                 .expectSubscription()
                 .expectNext(anime)
                 .verifyComplete();
     }
 
+    @Test
+    @DisplayName("listPage returns a page of anime")
+    public void listPage_ReturnPageOfAnime_WhenSuccessful() {
+        StepVerifier.create(animeController.listPage(0, 10).flatMap(ResponseEntity::getBody))
+                .expectSubscription()
+                .expectNext(new AnimePage(List.of(anime), null))
+                .verifyComplete();
+    }
+
     @Test
     @DisplayName("findById returns Mono with anime when it exists")
     public void findById_ReturnMonoAnime_WhenSuccessful() {
-        StepVerifier.create(animeController.findById(1))
+        StepVerifier.create(animeController.findById(1).map(ResponseEntity::getBody))
                 .expectSubscription()
                 .expectNext(anime)
                 .verifyComplete();
     }
 
+    @Test
+    @DisplayName("findById returns the anime version as a strong ETag that must be revalidated")
+    public void findById_ReturnsVersionETag_WhenSuccessful() {
+        when(animeServiceMock.findById(anyInt()))
+                .thenReturn(Mono.just(anime.withVersion(3)));
+
+        StepVerifier.create(animeController.findById(1))
+                .expectSubscription()
+                .assertNext(response -> {
+                    assertEquals("\"3\"", response.getHeaders().getETag());
+                    assertEquals("no-cache, private", response.getHeaders().getCacheControl());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("listAll returns a collection ETag that changes when the collection version changes")
+    public void listAll_ReturnsCollectionETag_WhenCollectionVersionChanges() {
+        when(animeServiceMock.collectionVersion()).thenReturn(1L, 2L);
+
+        String first = animeController.listAll().map(response -> response.getHeaders().getETag()).block();
+        String second = animeController.listAll().map(response -> response.getHeaders().getETag()).block();
+
+        assertNotEquals(first, second);
+    }
+
     @Test
     @DisplayName("save creates an anime when successful")
     public void save_CreatesAnime_WhenSuccessful() {
@@ -112,7 +180,10 @@ class AnimeControllerTest {
     public void saveBacth_CreatesListOfAnime_WhenSuccessful() {
         Anime animeToBeSaved = AnimeCreator.createAnimeToBeSaved();
 
-        StepVerifier.create(animeController.saveBath(List.of(animeToBeSaved, animeToBeSaved)))
+        when(animeBatchReaderMock.read(any()))
+                .thenReturn(Mono.just(List.of(animeToBeSaved, animeToBeSaved)));
+
+        StepVerifier.create(animeController.saveBath(MockServerHttpRequest.post("/animes/batch").build()))
                 .expectSubscription()
                 .expectNext(anime, anime)
                 .verifyComplete();
@@ -121,7 +192,7 @@ class AnimeControllerTest {
     @Test
     @DisplayName("delete removes the anime successful")
     public void delete_RemovesAnime_WhenSuccessful() {
-        StepVerifier.create(animeController.delete(1))
+        StepVerifier.create(animeController.delete(1, null))
                 .expectSubscription()
                 .verifyComplete();
     }
@@ -129,9 +200,42 @@ class AnimeControllerTest {
     @Test
     @DisplayName("update save updated anime and returns empty mono when successful")
     public void update_SaveUpdateAnime_WhenSuccessful() {
-        StepVerifier.create(animeController.update(1, AnimeCreator.createValidAnime()))
+        StepVerifier.create(animeController.update(1, null, AnimeCreator.createValidAnime()))
+                .expectSubscription()
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("update passes the If-Match version to the service when header is present")
+    public void update_UsesIfMatchVersion_WhenHeaderIsPresent() {
+        when(animeServiceMock.update(AnimeCreator.createValidAnime().withVersion(3)))
+                .thenReturn(Mono.empty());
+
+        StepVerifier.create(animeController.update(1, "\"3\"", AnimeCreator.createValidAnime()))
                 .expectSubscription()
                 .verifyComplete();
+
+        verify(animeServiceMock).update(AnimeCreator.createValidAnime().withVersion(3));
     }
 
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("ingest returns a flux of chunk acknowledgements when successful")
+    public void ingest_ReturnsFluxOfChunkAcks_WhenSuccessful() {
+        Anime animeToBeSaved = AnimeCreator.createAnimeToBeSaved();
+
+        StepVerifier.create(animeController.ingest(Flux.just(animeToBeSaved, animeToBeSaved)))
+                .expectSubscription()
+                .expectNext(new AnimeChunkAck(0, 2, anime.getId(), anime.getId(), null))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("search returns a flux of anime when successful")
+    public void search_ReturnFluxOfAnime_WhenSuccessful() {
+        StepVerifier.create(animeController.search(anime.getName(), 10))
+                .expectSubscription()
+                .expectNext(anime)
+                .verifyComplete();
+    }
+}
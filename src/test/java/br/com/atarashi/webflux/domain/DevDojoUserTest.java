@@ -0,0 +1,54 @@
+package br.com.atarashi.webflux.domain;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DevDojoUserTest {
+
+    @Test
+    @DisplayName("getAuthorities returns the authorities of the comma separated string")
+    public void getAuthorities_ReturnAuthorities_WhenSuccessful() {
+        DevDojoUser user = new DevDojoUser(1, "Gustavo Atarashi", "gustavo", "devdojo", "ROLE_ADMIN,ROLE_USER");
+
+        assertEquals(2, user.getAuthorities().size());
+        assertTrue(user.getAuthorities().contains(new SimpleGrantedAuthority("ROLE_ADMIN")));
+        assertTrue(user.getAuthorities().contains(new SimpleGrantedAuthority("ROLE_USER")));
+        assertTrue(user.hasRole("ADMIN"));
+    }
+
+    @Test
+    @DisplayName("getAuthorities returns the same instance for users with the same authorities")
+    public void getAuthorities_ReturnSharedInstance_WhenAuthoritiesAreEqual() {
+        DevDojoUser gustavo = new DevDojoUser(1, "Gustavo Atarashi", "gustavo", "devdojo", "ROLE_USER");
+        DevDojoUser carlos = new DevDojoUser(2, "Carlos Atarashi", "carlos", "devdojo", new String("ROLE_USER"));
+
+        assertSame(gustavo.getAuthorities(), carlos.getAuthorities());
+        assertFalse(carlos.hasRole("ADMIN"));
+    }
+
+    @Test
+    @DisplayName("getAuthorities returns an empty set when the user has no authorities")
+    public void getAuthorities_ReturnEmptySet_WhenAuthoritiesAreEmpty() {
+        DevDojoUser user = new DevDojoUser(1, "Gustavo Atarashi", "gustavo", "devdojo", null);
+
+        assertTrue(user.getAuthorities().isEmpty());
+    }
+
+    @Test
+    @DisplayName("getAuthorities stops interning new authority strings once the bound is reached")
+    public void getAuthorities_DoesNotGrowInternedSetPastBound_WhenAuthoritiesAreDistinct() {
+        for (int i = 0; i < AuthoritySet.MAX_INTERNED * 2; i++) {
+            DevDojoUser user = new DevDojoUser(i, "User " + i, "user" + i, "devdojo", "ROLE_USER,ROLE_" + i);
+
+            assertTrue(user.hasRole("USER"));
+        }
+
+        assertTrue(AuthoritySet.internedCount() <= AuthoritySet.MAX_INTERNED);
+    }
+}
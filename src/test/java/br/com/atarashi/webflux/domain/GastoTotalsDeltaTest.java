@@ -0,0 +1,68 @@
+package br.com.atarashi.webflux.domain;
+
+import br.com.atarashi.webflux.util.GastoCreator;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GastoTotalsDeltaTest {
+
+    private static final LocalDate DAY = LocalDate.of(2020, 10, 16);
+
+    @Test
+    @DisplayName("add counts the expense on its day, its month and each of its normalized tags")
+    public void add_UpdatesDayMonthAndTags() {
+        GastoTotalsDelta delta = new GastoTotalsDelta()
+                .add(GastoCreator.createEntry(LocalDateTime.of(2020, 10, 16, 9, 0), "10.00", "Mercado, casa,mercado"));
+
+        assertEquals(new BigDecimal("10.00"), delta.getDays().get(DAY).getTotal());
+        assertEquals(1, delta.getMonths().get(LocalDate.of(2020, 10, 1)).getCount());
+        assertEquals(2, delta.getTagDays().size());
+        assertEquals(1, delta.getTagDays().get(new GastoTotalsDelta.TagDay("mercado", DAY)).getCount());
+    }
+
+    @Test
+    @DisplayName("an update that keeps day, tags and value cancels out")
+    public void removeAndAdd_CancelOut_WhenNothingRelevantChanged() {
+        Gasto gasto = GastoCreator.createEntry(LocalDateTime.of(2020, 10, 16, 9, 0), "10.00", "casa");
+
+        GastoTotalsDelta delta = new GastoTotalsDelta().remove(gasto).add(gasto.withNome("Outro nome"));
+
+        assertTrue(delta.getDays().get(DAY).isZero());
+        assertTrue(delta.getTagDays().get(new GastoTotalsDelta.TagDay("casa", DAY)).isZero());
+    }
+
+    @Test
+    @DisplayName("merge sums both deltas and keeps every table in key order")
+    public void merge_SumsDeltasInKeyOrder() {
+        GastoTotalsDelta first = new GastoTotalsDelta()
+                .add(GastoCreator.createEntry(LocalDateTime.of(2020, 11, 2, 9, 0), "5.00", "mercado"))
+                .add(GastoCreator.createEntry(LocalDateTime.of(2020, 10, 16, 9, 0), "10.00", "casa"));
+        GastoTotalsDelta second = new GastoTotalsDelta()
+                .add(GastoCreator.createEntry(LocalDateTime.of(2020, 10, 16, 18, 0), "2.50", "mercado,casa"));
+
+        GastoTotalsDelta merged = first.merge(second);
+
+        assertEquals(3, merged.getRows());
+        assertEquals(List.of(DAY, LocalDate.of(2020, 11, 2)), List.copyOf(merged.getDays().keySet()));
+        assertEquals(2, merged.getDays().get(DAY).getCount());
+        assertEquals(new BigDecimal("12.50"), merged.getMonths().get(LocalDate.of(2020, 10, 1)).getTotal());
+        assertEquals(List.of(new GastoTotalsDelta.TagDay("casa", DAY), new GastoTotalsDelta.TagDay("mercado", DAY),
+                        new GastoTotalsDelta.TagDay("mercado", LocalDate.of(2020, 11, 2))),
+                List.copyOf(merged.getTagDays().keySet()));
+    }
+
+    @Test
+    @DisplayName("split trims, lower-cases and drops empty or repeated tags")
+    public void split_ReturnNormalizedTags() {
+        assertEquals(List.of("mercado", "casa"), GastoTags.split(" Mercado, casa,,mercado "));
+        assertEquals(List.of(), GastoTags.split(null));
+    }
+}
@@ -0,0 +1,86 @@
+package br.com.atarashi.webflux.export;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Flux;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RowExporterTest {
+
+    private static final List<String> COLUMNS = List.of("id", "nome", "data", "valor");
+
+    private final DefaultDataBufferFactory bufferFactory = new DefaultDataBufferFactory();
+
+    @Test
+    @DisplayName("export writes a CSV header and quotes only the fields that need it")
+    public void export_WritesCsv_WhenFormatIsCsv() {
+        Flux<Object[]> rows = Flux.just(
+                new Object[]{1, "Mercado", LocalDateTime.of(2020, 10, 16, 10, 0), new BigDecimal("150.00")},
+                new Object[]{2, "Pão, \"queijo\"", null, new BigDecimal("7.50")});
+
+        String csv = new String(collect(new RowExporter(DataSize.ofKilobytes(32)).export(rows, COLUMNS, ExportFormat.CSV, false, bufferFactory)), StandardCharsets.UTF_8);
+
+        assertEquals("id,nome,data,valor\r\n"
+                + "1,Mercado,2020-10-16T10:00:00,150.00\r\n"
+                + "2,\"Pão, \"\"queijo\"\"\",,7.50\r\n", csv);
+    }
+
+    @Test
+    @DisplayName("export writes one escaped JSON object per line when format is NDJSON")
+    public void export_WritesNdjson_WhenFormatIsNdjson() {
+        Flux<Object[]> rows = Flux.just(
+                new Object[]{-42L, "linha\nnova \\ \"aspas\" 🍣", null, new BigDecimal("1.5")});
+
+        String ndjson = new String(collect(new RowExporter(DataSize.ofKilobytes(32)).export(rows, COLUMNS, ExportFormat.NDJSON, false, bufferFactory)), StandardCharsets.UTF_8);
+
+        assertEquals("{\"id\":-42,\"nome\":\"linha\\nnova \\\\ \\\"aspas\\\" 🍣\",\"data\":null,\"valor\":1.5}\n", ndjson);
+    }
+
+    @Test
+    @DisplayName("export emits several chunks and a gzip stream that inflates back to the same rows")
+    public void export_EmitsChunkedGzip_WhenGzipIsEnabled() throws IOException {
+        Flux<Object[]> rows = Flux.range(1, 5_000)
+                .map(id -> new Object[]{id, "Anime " + id, null, null});
+
+        List<DataBuffer> chunks = new RowExporter(DataSize.ofBytes(1024))
+                .export(rows, COLUMNS, ExportFormat.CSV, true, bufferFactory)
+                .collectList()
+                .block();
+
+        assertTrue(chunks.size() > 1);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        chunks.forEach(chunk -> {
+            byte[] bytes = new byte[chunk.readableByteCount()];
+            chunk.read(bytes);
+            compressed.write(bytes, 0, bytes.length);
+            DataBufferUtils.release(chunk);
+        });
+        String csv = new String(new GZIPInputStream(new ByteArrayInputStream(compressed.toByteArray())).readAllBytes(), StandardCharsets.UTF_8);
+        String[] lines = csv.split("\r\n");
+        assertEquals(5_001, lines.length);
+        assertEquals("5000,Anime 5000,,", lines[5_000]);
+    }
+
+    private static byte[] collect(Flux<DataBuffer> chunks) {
+        DataBuffer joined = DataBufferUtils.join(chunks).block();
+        byte[] bytes = new byte[joined.readableByteCount()];
+        joined.read(bytes);
+        DataBufferUtils.release(joined);
+        return bytes;
+    }
+}
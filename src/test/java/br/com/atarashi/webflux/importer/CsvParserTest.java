@@ -0,0 +1,68 @@
+package br.com.atarashi.webflux.importer;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CsvParserTest {
+
+    private final DefaultDataBufferFactory bufferFactory = new DefaultDataBufferFactory();
+
+    @Test
+    @DisplayName("feed parses quoted fields, escaped quotes and embedded line breaks split across buffers")
+    public void feed_ParsesRecords_WhenSplitAtEveryByte() {
+        byte[] csv = "id,name\r\n1,\"Naruto, \"\"Shippuden\"\"\"\r\n\r\n2,\"linha\nnova\"\n3,Pokémon"
+                .getBytes(StandardCharsets.UTF_8);
+        CsvParser parser = new CsvParser(1024);
+        List<CsvRecord> records = new ArrayList<>();
+
+        // um byte por buffer corta aspas, CRLF e o é de Pokémon no meio
+        for (byte b : csv) {
+            records.addAll(parser.feed(bufferFactory.wrap(new byte[]{b})));
+        }
+        records.addAll(parser.finish());
+
+        assertEquals(List.of(
+                new CsvRecord(1, List.of("id", "name")),
+                new CsvRecord(2, List.of("1", "Naruto, \"Shippuden\"")),
+                new CsvRecord(4, List.of("2", "linha\nnova")),
+                new CsvRecord(6, List.of("3", "Pokémon"))), records);
+    }
+
+    @Test
+    @DisplayName("feed keeps empty fields, including a quoted empty one")
+    public void feed_KeepsEmptyFields() {
+        CsvParser parser = new CsvParser(1024);
+
+        List<CsvRecord> records = parser.feed(bufferFactory.wrap(",\"\",\n".getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(List.of(new CsvRecord(1, Arrays.asList("", "", ""))), records);
+    }
+
+    @Test
+    @DisplayName("feed fails when a record is longer than the limit")
+    public void feed_Fails_WhenRecordIsTooLong() {
+        CsvParser parser = new CsvParser(8);
+
+        assertThrows(ResponseStatusException.class,
+                () -> parser.feed(bufferFactory.wrap("123456789\n".getBytes(StandardCharsets.UTF_8))));
+    }
+
+    @Test
+    @DisplayName("finish fails when the file ends inside a quoted field")
+    public void finish_Fails_WhenQuoteIsNotClosed() {
+        CsvParser parser = new CsvParser(1024);
+        parser.feed(bufferFactory.wrap("1,\"Naruto\n".getBytes(StandardCharsets.UTF_8)));
+
+        assertThrows(ResponseStatusException.class, parser::finish);
+    }
+}
@@ -1,7 +1,11 @@
 package br.com.atarashi.webflux.integration;
 
+import br.com.atarashi.webflux.cache.AnimeCache;
+import br.com.atarashi.webflux.config.WebFluxConfig;
 import br.com.atarashi.webflux.domain.Anime;
+import br.com.atarashi.webflux.domain.AnimeChunkAck;
 import br.com.atarashi.webflux.repository.AnimeRepository;
+import br.com.atarashi.webflux.search.AnimeSearchIndex;
 import br.com.atarashi.webflux.util.AnimeCreator;
 import br.com.atarashi.webflux.util.WebTestClientUtil;
 import org.junit.jupiter.api.*;
@@ -10,6 +14,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithUserDetails;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
@@ -27,6 +33,9 @@ import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(SpringExtension.class)
@@ -43,28 +52,52 @@ public class AnimeControllerIT {
     @Autowired
     private WebTestClient client;
 
+    @Autowired
+    private AnimeCache animeCache;
+
+    @Autowired
+    private AnimeSearchIndex animeSearchIndex;
+
     private final Anime anime = AnimeCreator.createValidAnime();
 
     @BeforeEach
     public void setUp() {
+        animeCache.invalidateAll();
+        animeSearchIndex.index(anime);
+
         when(animeRepositoryMock.findAll())
                 .thenReturn(Flux.just(anime));
 
         when(animeRepositoryMock.findById(anyInt()))
                 .thenReturn(Mono.just(anime));
 
+        when(animeRepositoryMock.findPage(anyInt(), anyInt()))
+                .thenReturn(Flux.just(anime));
+
         when(animeRepositoryMock.save(AnimeCreator.createAnimeToBeSaved()))
                 .thenReturn(Mono.just(anime));
 
         when(animeRepositoryMock
-                .saveAll(List.of(AnimeCreator.createAnimeToBeSaved(), AnimeCreator.createAnimeToBeSaved())))
+                .insertAll(List.of(AnimeCreator.createAnimeToBeSaved(), AnimeCreator.createAnimeToBeSaved())))
                 .thenReturn(Flux.just(anime, anime));
 
         when(animeRepositoryMock.delete(any(Anime.class)))
                 .thenReturn(Mono.empty());
 
-        when(animeRepositoryMock.save(AnimeCreator.createValidAnime()))
-                .thenReturn(Mono.empty());
+        when(animeRepositoryMock.updateName(anyInt(), anyString()))
+                .thenReturn(Mono.just(1));
+
+        when(animeRepositoryMock.updateNameIfVersion(anyInt(), anyString(), anyInt()))
+                .thenReturn(Mono.just(1));
+
+        when(animeRepositoryMock.remove(anyInt()))
+                .thenReturn(Mono.just(1));
+
+        when(animeRepositoryMock.removeIfVersion(anyInt(), anyInt()))
+                .thenReturn(Mono.just(1));
+
+        when(animeRepositoryMock.existsById(anyInt()))
+                .thenReturn(Mono.just(true));
     }
 
     @BeforeAll
@@ -138,6 +171,37 @@ public class AnimeControllerIT {
             .contains(anime);
     }
 
+    @Test
+    @DisplayName("listAll streams animes as NDJSON when user successfully authenticated and has role ADMIN")
+    @WithUserDetails(ADMIN_USER)
+    public void listAll_StreamsNdjson_WhenNdjsonIsAccepted() {
+        client
+            .get()
+            .uri("/animes")
+            .accept(WebFluxConfig.APPLICATION_NDJSON)
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().contentTypeCompatibleWith(WebFluxConfig.APPLICATION_NDJSON)
+            .expectBodyList(Anime.class)
+            .hasSize(1)
+            .contains(anime);
+    }
+
+    @Test
+    @DisplayName("listPage returns a page of anime when user successfully authenticated and has role ADMIN")
+    @WithUserDetails(ADMIN_USER)
+    public void listPage_ReturnPageOfAnime_WhenSuccessful() {
+        client
+            .get()
+            .uri("/animes?after={after}&limit={limit}", 0, 10)
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.content[0].id").isEqualTo(anime.getId())
+            .jsonPath("$.content[0].name").isEqualTo(anime.getName())
+            .jsonPath("$.nextCursor").doesNotExist();
+    }
+
     @Test
     @DisplayName("findById returns Mono with anime when it exists and user successfully authenticated and has role USER")
     @WithUserDetails(REGULAR_USER)
@@ -151,6 +215,62 @@ public class AnimeControllerIT {
             .isEqualTo(anime);
 }
 
+    @Test
+    @DisplayName("search returns a flux of anime matching the query when user successfully authenticated and has role USER")
+    @WithUserDetails(REGULAR_USER)
+    public void search_ReturnFluxOfAnime_WhenSuccessful() {
+        client
+            .get()
+            .uri("/animes/search?q={q}", anime.getName().substring(0, 3))
+            .exchange()
+            .expectStatus().isOk()
+            .expectBodyList(Anime.class)
+            .hasSize(1)
+            .contains(anime);
+    }
+
+    @Test
+    @DisplayName("findById returns not modified when If-None-Match matches the anime version and user successfully authenticated and has role USER")
+    @WithUserDetails(REGULAR_USER)
+    public void findById_ReturnsNotModified_WhenIfNoneMatchMatches() {
+        when(animeRepositoryMock.findById(anyInt()))
+            .thenReturn(Mono.just(anime.withVersion(2)));
+
+        client
+            .get()
+            .uri("/animes/{id}", 1)
+            .ifNoneMatch("\"2\"")
+            .exchange()
+            .expectStatus().isNotModified()
+            .expectHeader().valueEquals(HttpHeaders.ETAG, "\"2\"")
+            .expectBody().isEmpty();
+    }
+
+    @Test
+    @DisplayName("listAll returns not modified without querying the database when collection did not change and user successfully authenticated and has role ADMIN")
+    @WithUserDetails(ADMIN_USER)
+    public void listAll_ReturnsNotModifiedWithoutQuery_WhenCollectionDidNotChange() {
+        String eTag = client
+            .get()
+            .uri("/animes")
+            .exchange()
+            .expectStatus().isOk()
+            .returnResult(Anime.class)
+            .getResponseHeaders()
+            .getETag();
+
+        clearInvocations(animeRepositoryMock);
+
+        client
+            .get()
+            .uri("/animes")
+            .ifNoneMatch(eTag)
+            .exchange()
+            .expectStatus().isNotModified();
+
+        verify(animeRepositoryMock, never()).findAll();
+    }
+
     @Test
     @DisplayName("findById returns Mono error when anime does not exist and user successfully authenticated and has role USER")
     @WithUserDetails(REGULAR_USER)
@@ -163,8 +283,12 @@ public class AnimeControllerIT {
             .uri("/animes/{id}", 1)
             .exchange()
             .expectStatus().isNotFound()
+            .expectHeader().contentType(MediaType.APPLICATION_JSON)
             .expectBody()
+            .jsonPath("$.path").isEqualTo("/animes/1")
             .jsonPath("$.status").isEqualTo(404)
+            .jsonPath("$.error").isEqualTo("Not Found")
+            .jsonPath("$.message").isEqualTo("404 NOT_FOUND \"Anime not found\"")
             .jsonPath("$.developerMessage").isEqualTo("A ResponseStatusException Happened");
     }
 
@@ -203,21 +327,37 @@ public class AnimeControllerIT {
             .contains(anime);
     }
 
+    @Test
+    @DisplayName("ingest acknowledges each chunk as NDJSON when successful and user successfully authenticated and has role ADMIN")
+    @WithUserDetails(ADMIN_USER)
+    public void ingest_AcknowledgesChunks_WhenSuccessful() {
+        Anime animeToBeSaved = AnimeCreator.createAnimeToBeSaved();
+
+        client
+            .post()
+            .uri("/animes/batch")
+            .contentType(WebFluxConfig.APPLICATION_NDJSON)
+            .accept(WebFluxConfig.APPLICATION_NDJSON)
+            .body(Flux.just(animeToBeSaved, animeToBeSaved), Anime.class)
+            .exchange()
+            .expectStatus().isCreated()
+            .expectHeader().contentTypeCompatibleWith(WebFluxConfig.APPLICATION_NDJSON)
+            .expectBodyList(AnimeChunkAck.class)
+            .hasSize(1)
+            .contains(new AnimeChunkAck(0, 2, anime.getId(), anime.getId(), null));
+    }
+
     @Test
     @DisplayName("saveBatch returns Mono error when one of the objects in the list contains null or empty name and user successfully authenticated and has role ADMIN")
     @WithUserDetails(ADMIN_USER)
     public void saveBatch_ReturnsError_WhenContainsInvalidName() {
         Anime animeToBeSaved = AnimeCreator.createAnimeToBeSaved();
 
-        when(animeRepositoryMock
-            .saveAll(anyIterable()))
-            .thenReturn(Flux.just(anime, anime.withName("")));
-
         client
             .post()
             .uri("/animes/batch")
             .contentType(MediaType.APPLICATION_JSON)
-            .body(BodyInserters.fromValue(List.of(animeToBeSaved, animeToBeSaved)))
+            .body(BodyInserters.fromValue(List.of(animeToBeSaved, animeToBeSaved.withName(""))))
             .exchange()
             .expectStatus().isBadRequest()
             .expectBody()
@@ -256,8 +396,8 @@ public class AnimeControllerIT {
     @DisplayName("delete returns Mono error when anime does not exist and user successfully authenticated and has role ADMIN")
     @WithUserDetails(ADMIN_USER)
     public void delete_ReturnMonoError_WhenEmptyMonoIsReturned() {
-        when(animeRepositoryMock.findById(anyInt()))
-                .thenReturn(Mono.empty());
+        when(animeRepositoryMock.remove(anyInt()))
+                .thenReturn(Mono.just(0));
 
         client
             .delete()
@@ -286,8 +426,8 @@ public class AnimeControllerIT {
     @DisplayName("update returns MOno error when anime does exist and user successfully authenticated and has role ADMIN")
     @WithUserDetails(ADMIN_USER)
     public void update_ReturnMonoError_WhenEmptyMonoIsReturned() {
-        when(animeRepositoryMock.findById(anyInt()))
-            .thenReturn(Mono.empty());
+        when(animeRepositoryMock.updateName(anyInt(), anyString()))
+            .thenReturn(Mono.just(0));
 
         client
             .put()
@@ -300,4 +440,35 @@ public class AnimeControllerIT {
             .jsonPath("$.status").isEqualTo(404)
             .jsonPath("$.developerMessage").isEqualTo("A ResponseStatusException Happened");
     }
+
+    @Test
+    @DisplayName("update returns precondition failed when If-Match is outdated and user successfully authenticated and has role ADMIN")
+    @WithUserDetails(ADMIN_USER)
+    public void update_ReturnsPreconditionFailed_WhenIfMatchIsOutdated() {
+        when(animeRepositoryMock.updateNameIfVersion(anyInt(), anyString(), anyInt()))
+            .thenReturn(Mono.just(0));
+
+        client
+            .put()
+            .uri("/animes/{id}", 1)
+            .contentType(MediaType.APPLICATION_JSON)
+            .header(HttpHeaders.IF_MATCH, "\"3\"")
+            .body(BodyInserters.fromValue(anime))
+            .exchange()
+            .expectStatus().isEqualTo(HttpStatus.PRECONDITION_FAILED)
+            .expectBody()
+            .jsonPath("$.status").isEqualTo(412);
+    }
+
+    @Test
+    @DisplayName("delete returns precondition failed when If-Match is a weak ETag and user successfully authenticated and has role ADMIN")
+    @WithUserDetails(ADMIN_USER)
+    public void delete_ReturnsPreconditionFailed_WhenIfMatchIsWeak() {
+        client
+            .delete()
+            .uri("/animes/{id}", 1)
+            .header(HttpHeaders.IF_MATCH, "W/\"0\"")
+            .exchange()
+            .expectStatus().isEqualTo(HttpStatus.PRECONDITION_FAILED);
+    }
 }
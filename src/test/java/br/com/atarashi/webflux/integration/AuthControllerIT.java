@@ -0,0 +1,112 @@
+package br.com.atarashi.webflux.integration;
+
+import br.com.atarashi.webflux.domain.AccessToken;
+import br.com.atarashi.webflux.domain.Anime;
+import br.com.atarashi.webflux.repository.AnimeRepository;
+import br.com.atarashi.webflux.util.AnimeCreator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@AutoConfigureWebTestClient
+public class AuthControllerIT {
+
+    private final static String REGULAR_USER = "carlos";
+    private final static String ADMIN_USER = "gustavo";
+    private final static String PASSWORD = "devdojo";
+
+    @MockBean
+    private AnimeRepository animeRepositoryMock;
+
+    @Autowired
+    private WebTestClient client;
+
+    private final Anime anime = AnimeCreator.createValidAnime();
+
+    @BeforeEach
+    public void setUp() {
+        when(animeRepositoryMock.findAll())
+                .thenReturn(Flux.just(anime));
+    }
+
+    @Test
+    @DisplayName("token returns unauthorized when user is not authenticated")
+    public void token_ReturnUnauthorized_WhenUserIsNotAuthenticated() {
+        client
+            .post()
+            .uri("/auth/token")
+            .exchange()
+            .expectStatus().isUnauthorized();
+    }
+
+    @Test
+    @DisplayName("token issues a bearer token that grants the roles of the authenticated user")
+    public void token_IssueBearerToken_WhenUserIsAuthenticated() {
+        String token = issueToken(ADMIN_USER);
+
+        client
+            .get()
+            .uri("/animes")
+            .headers(headers -> headers.setBearerAuth(token))
+            .exchange()
+            .expectStatus().isOk()
+            .expectBodyList(Anime.class)
+            .contains(anime);
+    }
+
+    @Test
+    @DisplayName("bearer token returns forbidden when user does not have role ADMIN")
+    public void token_ReturnForbidden_WhenUserDoesNotHaveRoleAdmin() {
+        String token = issueToken(REGULAR_USER);
+
+        client
+            .get()
+            .uri("/animes")
+            .headers(headers -> headers.setBearerAuth(token))
+            .exchange()
+            .expectStatus().isForbidden();
+    }
+
+    @Test
+    @DisplayName("bearer token returns unauthorized when the signature is invalid")
+    public void token_ReturnUnauthorized_WhenSignatureIsInvalid() {
+        String token = issueToken(ADMIN_USER);
+
+        client
+            .get()
+            .uri("/animes")
+            .headers(headers -> headers.setBearerAuth(token.substring(0, token.length() - 2) + "xx"))
+            .exchange()
+            .expectStatus().isUnauthorized();
+    }
+
+    private String issueToken(String username) {
+        AccessToken accessToken = client
+            .post()
+            .uri("/auth/token")
+            .headers(headers -> headers.setBasicAuth(username, PASSWORD))
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(AccessToken.class)
+            .returnResult()
+            .getResponseBody();
+
+        assertNotNull(accessToken);
+        assertEquals("Bearer", accessToken.getTokenType());
+        return accessToken.getAccessToken();
+    }
+}
@@ -0,0 +1,42 @@
+package br.com.atarashi.webflux.integration;
+
+import br.com.atarashi.webflux.domain.Anime;
+import br.com.atarashi.webflux.repository.AnimeRepository;
+import br.com.atarashi.webflux.util.AnimeCreator;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.spi.ConnectionFactory;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import reactor.test.StepVerifier;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(properties = {
+        "database.pool.enabled=false",
+        "database.name=webflux_essentials_without_pool"
+})
+public class DatabaseWithoutPoolIT {
+
+    @Autowired
+    private ConnectionFactory connectionFactory;
+
+    @Autowired
+    private AnimeRepository animeRepository;
+
+    @Test
+    @DisplayName("context starts and queries the database when the connection pool is disabled")
+    public void connectionFactory_QueriesDatabase_WhenPoolIsDisabled() {
+        assertFalse(connectionFactory instanceof ConnectionPool);
+
+        StepVerifier.create(animeRepository.save(AnimeCreator.createAnimeToBeSaved())
+                        .map(Anime::getId)
+                        .flatMap(animeRepository::findById))
+                .expectNextMatches(anime -> anime.getName().equals(AnimeCreator.createAnimeToBeSaved().getName()))
+                .verifyComplete();
+    }
+}
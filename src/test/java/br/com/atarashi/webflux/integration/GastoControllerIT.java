@@ -0,0 +1,147 @@
+package br.com.atarashi.webflux.integration;
+
+import br.com.atarashi.webflux.domain.Gasto;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithUserDetails;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+// Roda contra o H2 das migrações, sem mocks: o CRUD e a listagem por período. Cada teste usa um período
+// que nenhum outro IT usa, então não precisa limpar as tabelas.
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@AutoConfigureWebTestClient
+public class GastoControllerIT {
+
+    private final static String REGULAR_USER = "carlos";
+    private final static String ADMIN_USER = "gustavo";
+
+    @Autowired
+    private WebTestClient client;
+
+    @Test
+    @DisplayName("save returns forbidden when user does not have role ADMIN")
+    @WithUserDetails(REGULAR_USER)
+    public void save_ReturnForbidden_WhenUserDoesNotHaveRoleAdmin() {
+        client
+            .post()
+            .uri("/gastos")
+            .bodyValue(gasto("Mercado", LocalDateTime.of(2019, 3, 10, 9, 0), "10.00", null))
+            .exchange()
+            .expectStatus().isForbidden();
+    }
+
+    @Test
+    @DisplayName("save, findById, update and delete work against the database when user has role ADMIN")
+    @WithUserDetails(ADMIN_USER)
+    public void crud_WritesAndReadsGasto_WhenSuccessful() {
+        Gasto saved = save(gasto("Mercado", LocalDateTime.of(2019, 3, 10, 9, 0), "150.00", "mercado,casa"));
+
+        client
+            .get()
+            .uri("/gastos/{id}", saved.getId())
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(Gasto.class)
+            .isEqualTo(saved);
+
+        Gasto changed = saved.withNome("Feira").withValor(new BigDecimal("80.00")).withTags("feira");
+        client
+            .put()
+            .uri("/gastos/{id}", saved.getId())
+            .bodyValue(changed)
+            .exchange()
+            .expectStatus().isNoContent();
+
+        client
+            .get()
+            .uri("/gastos/{id}", saved.getId())
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(Gasto.class)
+            .isEqualTo(changed);
+
+        client
+            .delete()
+            .uri("/gastos/{id}", saved.getId())
+            .exchange()
+            .expectStatus().isNoContent();
+
+        client
+            .get()
+            .uri("/gastos/{id}", saved.getId())
+            .exchange()
+            .expectStatus().isNotFound()
+            .expectBody()
+            .jsonPath("$.status").isEqualTo(404);
+
+        client
+            .delete()
+            .uri("/gastos/{id}", saved.getId())
+            .exchange()
+            .expectStatus().isNotFound();
+    }
+
+    @Test
+    @DisplayName("listByPeriod returns the expenses of the period ordered by date")
+    @WithUserDetails(ADMIN_USER)
+    public void listByPeriod_ReturnGastosOfPeriodOrderedByDate_WhenSuccessful() {
+        Gasto luz = save(gasto("Luz", LocalDateTime.of(2021, 5, 4, 10, 0), "50.00", null));
+        Gasto mercado = save(gasto("Mercado", LocalDateTime.of(2021, 5, 3, 10, 0), "150.00", null));
+        save(gasto("Mercado fora do período", LocalDateTime.of(2021, 6, 1, 10, 0), "20.00", null));
+        save(gasto("Cinema fora do período", LocalDateTime.of(2021, 4, 30, 23, 59), "30.00", null));
+
+        List<Long> ids = client
+            .get()
+            .uri(uri -> uri.path("/gastos").queryParam("from", "2021-05-01").queryParam("to", "2021-06-01").build())
+            .exchange()
+            .expectStatus().isOk()
+            .expectBodyList(Gasto.class)
+            .returnResult()
+            .getResponseBody()
+            .stream()
+            .map(Gasto::getId)
+            .collect(Collectors.toList());
+
+        assertEquals(List.of(mercado.getId(), luz.getId()), ids);
+    }
+
+    private static Gasto gasto(String nome, LocalDateTime data, String valor, String tags) {
+        return Gasto.builder()
+                .nome(nome)
+                .descricao(nome)
+                .data(data)
+                .valor(new BigDecimal(valor))
+                .tags(tags)
+                .build();
+    }
+
+    private Gasto save(Gasto gasto) {
+        Gasto saved = client
+            .post()
+            .uri("/gastos")
+            .bodyValue(gasto)
+            .exchange()
+            .expectStatus().isCreated()
+            .expectBody(Gasto.class)
+            .returnResult()
+            .getResponseBody();
+
+        assertNotNull(saved);
+        assertNotNull(saved.getId());
+        return saved;
+    }
+}
@@ -0,0 +1,158 @@
+package br.com.atarashi.webflux.integration;
+
+import br.com.atarashi.webflux.domain.Gasto;
+import br.com.atarashi.webflux.domain.GastoTotalsRebuild;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.r2dbc.core.DatabaseClient;
+import org.springframework.security.test.context.support.WithUserDetails;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+// Roda contra o H2 das migrações, sem mocks: a ligação GASTO_TAG feita em cada escrita e a consulta
+// por INTERSECT. O dicionário TAG fica entre os testes porque o GastoTagInterner guarda os ids em
+// memória; cada teste usa um período que nenhum outro IT usa.
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@AutoConfigureWebTestClient
+public class GastoTagIT {
+
+    private final static String ADMIN_USER = "gustavo";
+
+    @Autowired
+    private WebTestClient client;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @Test
+    @DisplayName("listByPeriod returns only the expenses tagged with all the requested tags")
+    @WithUserDetails(ADMIN_USER)
+    public void listByPeriod_ReturnGastosWithAllTags_WhenTagsAreInformed() {
+        Gasto both = save(gasto("Mercado", LocalDateTime.of(2023, 5, 3, 10, 0), "150.00", "mercado,casa"));
+        Gasto casa = save(gasto("Luz", LocalDateTime.of(2023, 5, 4, 10, 0), "50.00", "casa"));
+        save(gasto("Cinema", LocalDateTime.of(2023, 5, 5, 10, 0), "30.00", "lazer"));
+        save(gasto("Mercado fora do período", LocalDateTime.of(2023, 6, 1, 10, 0), "20.00", "mercado,casa"));
+
+        assertEquals(List.of(both.getId()), listByPeriod("2023-05-01", "2023-06-01", "casa,mercado"));
+        assertEquals(List.of(both.getId(), casa.getId()), listByPeriod("2023-05-01", "2023-06-01", "casa"));
+        assertEquals(List.of(), listByPeriod("2023-05-01", "2023-06-01", "casa,nunca-usada"));
+        assertEquals(3, listByPeriod("2023-05-01", "2023-06-01", null).size());
+    }
+
+    @Test
+    @DisplayName("listByPeriod follows the tags of an updated expense")
+    @WithUserDetails(ADMIN_USER)
+    public void listByPeriod_FollowsNewTags_WhenGastoIsUpdated() {
+        Gasto saved = save(gasto("Mercado", LocalDateTime.of(2023, 7, 3, 10, 0), "150.00", "mercado,casa"));
+
+        client
+            .put()
+            .uri("/gastos/{id}", saved.getId())
+            .bodyValue(saved.withTags("feira"))
+            .exchange()
+            .expectStatus().isNoContent();
+
+        assertEquals(List.of(), listByPeriod("2023-07-01", "2023-08-01", "mercado"));
+        assertEquals(List.of(saved.getId()), listByPeriod("2023-07-01", "2023-08-01", "feira"));
+    }
+
+    @Test
+    @DisplayName("rebuildTotals recreates the tag index from the expenses")
+    @WithUserDetails(ADMIN_USER)
+    public void rebuildTotals_RecreatesTagIndex_WhenSuccessful() {
+        Gasto mercado = save(gasto("Mercado", LocalDateTime.of(2023, 9, 10, 10, 0), "150.00", "mercado,casa"));
+        save(gasto("Luz", LocalDateTime.of(2023, 9, 12, 8, 0), "50.00", "casa"));
+
+        databaseClient.execute("DELETE FROM gasto_tag").fetch().rowsUpdated().block();
+
+        assertEquals(GastoTotalsRebuild.State.COMPLETED, rebuild().getState());
+        assertEquals(List.of(mercado.getId()), listByPeriod("2023-09-01", "2023-10-01", "mercado"));
+    }
+
+    private static Gasto gasto(String nome, LocalDateTime data, String valor, String tags) {
+        return Gasto.builder()
+                .nome(nome)
+                .descricao(nome)
+                .data(data)
+                .valor(new BigDecimal(valor))
+                .tags(tags)
+                .build();
+    }
+
+    private Gasto save(Gasto gasto) {
+        Gasto saved = client
+            .post()
+            .uri("/gastos")
+            .bodyValue(gasto)
+            .exchange()
+            .expectStatus().isCreated()
+            .expectBody(Gasto.class)
+            .returnResult()
+            .getResponseBody();
+
+        assertNotNull(saved);
+        assertNotNull(saved.getId());
+        return saved;
+    }
+
+    // o rebuild roda como job: o POST responde na hora e o status é consultado até ele terminar
+    private GastoTotalsRebuild rebuild() {
+        client
+            .post()
+            .uri("/gastos/report/rebuild")
+            .exchange()
+            .expectStatus().isAccepted();
+
+        for (int attempt = 0; attempt < 500; attempt++) {
+            GastoTotalsRebuild rebuild = client
+                .get()
+                .uri("/gastos/report/rebuild")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(GastoTotalsRebuild.class)
+                .returnResult()
+                .getResponseBody();
+            assertNotNull(rebuild);
+            if (rebuild.getState() != GastoTotalsRebuild.State.RUNNING) {
+                return rebuild;
+            }
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        throw new AssertionError("rebuild did not finish");
+    }
+
+    private List<Long> listByPeriod(String from, String to, String tags) {
+        return client
+            .get()
+            .uri(uri -> {
+                uri.path("/gastos").queryParam("from", from).queryParam("to", to);
+                if (tags != null) {
+                    uri.queryParam("tags", tags);
+                }
+                return uri.build();
+            })
+            .exchange()
+            .expectStatus().isOk()
+            .expectBodyList(Gasto.class)
+            .returnResult()
+            .getResponseBody()
+            .stream()
+            .map(Gasto::getId)
+            .collect(Collectors.toList());
+    }
+}
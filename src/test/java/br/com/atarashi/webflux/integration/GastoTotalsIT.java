@@ -0,0 +1,164 @@
+package br.com.atarashi.webflux.integration;
+
+import br.com.atarashi.webflux.domain.Gasto;
+import br.com.atarashi.webflux.domain.GastoTotal;
+import br.com.atarashi.webflux.domain.GastoTotalsRebuild;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.r2dbc.core.DatabaseClient;
+import org.springframework.security.test.context.support.WithUserDetails;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Roda contra o H2 das migrações, sem mocks: os MERGE dos totais em cada escrita, o FOR UPDATE
+// que dá ao update e ao delete os valores substituídos, e o rebuild. Cada teste olha só o seu período,
+// então os gastos dos outros ITs podem ficar no banco.
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@AutoConfigureWebTestClient
+public class GastoTotalsIT {
+
+    private final static String ADMIN_USER = "gustavo";
+
+    @Autowired
+    private WebTestClient client;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @Test
+    @DisplayName("reports follow updates and deletes through the materialized totals")
+    @WithUserDetails(ADMIN_USER)
+    public void reports_ReflectUpdateAndDelete_WhenSuccessful() {
+        Gasto october = save(gasto("Mercado", LocalDateTime.of(2020, 10, 16, 10, 0), "150.00", "mercado,casa"));
+        Gasto november = save(gasto("Luz", LocalDateTime.of(2020, 11, 2, 8, 0), "50.00", "casa"));
+
+        assertEquals(List.of("2020-10-16:1:150", "2020-11-02:1:50"), report("daily", "2020-10-01", "2020-12-01"));
+
+        client
+            .put()
+            .uri("/gastos/{id}", october.getId())
+            .bodyValue(october.withData(LocalDateTime.of(2020, 10, 20, 10, 0)).withValor(new BigDecimal("100.00")))
+            .exchange()
+            .expectStatus().isNoContent();
+
+        assertEquals(List.of("2020-10-20:1:100", "2020-11-02:1:50"), report("daily", "2020-10-01", "2020-12-01"));
+        assertEquals(List.of("2020-10:1:100", "2020-11:1:50"), report("monthly", "2020-10-01", "2020-12-01"));
+        assertEquals(List.of("casa:2:150", "mercado:1:100"), report("tags", "2020-10-01", "2020-12-01"));
+
+        client
+            .delete()
+            .uri("/gastos/{id}", november.getId())
+            .exchange()
+            .expectStatus().isNoContent();
+
+        assertEquals(List.of("2020-10-20:1:100"), report("daily", "2020-10-01", "2020-12-01"));
+        assertEquals(List.of("2020-10:1:100"), report("monthly", "2020-10-01", "2020-12-01"));
+        assertEquals(List.of("casa:1:100", "mercado:1:100"), report("tags", "2020-10-01", "2020-12-01"));
+        // a parte de outubro que não é um mês inteiro vem da tabela diária
+        assertEquals(List.of("2020-10:1:100"), report("monthly", "2020-10-18", "2020-12-01"));
+    }
+
+    @Test
+    @DisplayName("rebuildTotals recomputes the totals from the expenses")
+    @WithUserDetails(ADMIN_USER)
+    public void rebuildTotals_RecomputesTotals_WhenSuccessful() {
+        save(gasto("Mercado", LocalDateTime.of(2022, 1, 10, 10, 0), "150.00", "mercado,casa"));
+        save(gasto("Luz", LocalDateTime.of(2022, 2, 2, 8, 0), "50.00", "casa"));
+
+        Flux.just("DELETE FROM gasto_total_dia", "DELETE FROM gasto_total_mes", "DELETE FROM gasto_total_tag")
+                .concatMap(sql -> databaseClient.execute(sql).fetch().rowsUpdated())
+                .blockLast();
+
+        GastoTotalsRebuild rebuild = rebuild();
+
+        assertEquals(GastoTotalsRebuild.State.COMPLETED, rebuild.getState());
+        assertTrue(rebuild.getRows() >= 2);
+        assertEquals(List.of("2022-01-10:1:150", "2022-02-02:1:50"), report("daily", "2022-01-01", "2022-03-01"));
+        assertEquals(List.of("2022-01:1:150", "2022-02:1:50"), report("monthly", "2022-01-01", "2022-03-01"));
+        assertEquals(List.of("casa:2:200", "mercado:1:150"), report("tags", "2022-01-01", "2022-03-01"));
+    }
+
+    private static Gasto gasto(String nome, LocalDateTime data, String valor, String tags) {
+        return Gasto.builder()
+                .nome(nome)
+                .descricao(nome)
+                .data(data)
+                .valor(new BigDecimal(valor))
+                .tags(tags)
+                .build();
+    }
+
+    private Gasto save(Gasto gasto) {
+        Gasto saved = client
+            .post()
+            .uri("/gastos")
+            .bodyValue(gasto)
+            .exchange()
+            .expectStatus().isCreated()
+            .expectBody(Gasto.class)
+            .returnResult()
+            .getResponseBody();
+
+        assertNotNull(saved);
+        assertNotNull(saved.getId());
+        return saved;
+    }
+
+    // o rebuild roda como job: o POST responde na hora e o status é consultado até ele terminar
+    private GastoTotalsRebuild rebuild() {
+        client
+            .post()
+            .uri("/gastos/report/rebuild")
+            .exchange()
+            .expectStatus().isAccepted();
+
+        for (int attempt = 0; attempt < 500; attempt++) {
+            GastoTotalsRebuild rebuild = client
+                .get()
+                .uri("/gastos/report/rebuild")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(GastoTotalsRebuild.class)
+                .returnResult()
+                .getResponseBody();
+            assertNotNull(rebuild);
+            if (rebuild.getState() != GastoTotalsRebuild.State.RUNNING) {
+                return rebuild;
+            }
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        throw new AssertionError("rebuild did not finish");
+    }
+
+    // chave:quantidade:total, com o total sem zeros à direita para não depender da escala do banco
+    private List<String> report(String kind, String from, String to) {
+        return client
+            .get()
+            .uri(uri -> uri.path("/gastos/report/" + kind).queryParam("from", from).queryParam("to", to).build())
+            .exchange()
+            .expectStatus().isOk()
+            .expectBodyList(GastoTotal.class)
+            .returnResult()
+            .getResponseBody()
+            .stream()
+            .map(total -> total.getKey() + ":" + total.getCount() + ":" + total.getTotal().stripTrailingZeros().toPlainString())
+            .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,93 @@
+package br.com.atarashi.webflux.integration;
+
+import br.com.atarashi.webflux.domain.Anime;
+import br.com.atarashi.webflux.repository.AnimeRepository;
+import br.com.atarashi.webflux.util.AnimeCreator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.security.test.context.support.WithUserDetails;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@AutoConfigureWebTestClient
+public class MetricsIT {
+
+    private final static String REGULAR_USER = "carlos";
+    private final static String ADMIN_USER = "gustavo";
+
+    @MockBean
+    private AnimeRepository animeRepositoryMock;
+
+    @Autowired
+    private WebTestClient client;
+
+    private final Anime anime = AnimeCreator.createValidAnime();
+
+    @BeforeEach
+    public void setUp() {
+        when(animeRepositoryMock.findById(anyInt()))
+                .thenReturn(Mono.just(anime));
+    }
+
+    @Test
+    @DisplayName("prometheus exposes endpoint and service timers when user has role ADMIN")
+    @WithUserDetails(ADMIN_USER)
+    public void prometheus_ExposesEndpointAndServiceTimers_WhenUserHasRoleAdmin() {
+        client
+            .get()
+            .uri("/animes/{id}", 1)
+            .exchange()
+            .expectStatus().isOk();
+
+        String scrape = client
+            .get()
+            .uri("/actuator/prometheus")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(String.class)
+            .returnResult()
+            .getResponseBody();
+
+        assertNotNull(scrape);
+        assertTrue(scrape.contains("http_server_requests_seconds_count{exception=\"None\",method=\"GET\",outcome=\"SUCCESS\",status=\"200\",uri=\"/animes/{id}\",}"));
+        assertTrue(scrape.contains("service_calls_seconds_count{method=\"findById\",outcome=\"success\",service=\"AnimeService\",}"));
+        assertTrue(scrape.contains("cache_gets_total{cache=\"anime\""));
+    }
+
+    @Test
+    @DisplayName("prometheus returns forbidden when user does not have role ADMIN")
+    @WithUserDetails(REGULAR_USER)
+    public void prometheus_ReturnForbidden_WhenUserDoesNotHaveRoleAdmin() {
+        client
+            .get()
+            .uri("/actuator/prometheus")
+            .exchange()
+            .expectStatus().isForbidden();
+    }
+
+    @Test
+    @DisplayName("health is available without authentication")
+    public void health_ReturnsUp_WithoutAuthentication() {
+        client
+            .get()
+            .uri("/actuator/health")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.status").isEqualTo("UP");
+    }
+}
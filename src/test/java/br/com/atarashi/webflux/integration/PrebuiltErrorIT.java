@@ -0,0 +1,92 @@
+package br.com.atarashi.webflux.integration;
+
+import br.com.atarashi.webflux.cache.AnimeCache;
+import br.com.atarashi.webflux.exception.GlobalExceptionHandler;
+import br.com.atarashi.webflux.repository.AnimeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Cada checkpoint da cadeia de WebFilters anexa um suppressed ao erro que passa por ele: com uma instância
+// compartilhada entre requisições a lista cresceria a cada 404.
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@AutoConfigureWebTestClient
+public class PrebuiltErrorIT {
+
+    private final static String ADMIN_USER = "gustavo";
+    private final static String PASSWORD = "devdojo";
+    private final static int REQUESTS = 50;
+
+    @MockBean
+    private AnimeRepository animeRepositoryMock;
+
+    @SpyBean
+    private GlobalExceptionHandler globalExceptionHandler;
+
+    @Autowired
+    private AnimeCache animeCache;
+
+    @Autowired
+    private WebTestClient client;
+
+    @BeforeEach
+    public void setUp() {
+        animeCache.invalidateAll();
+
+        when(animeRepositoryMock.findById(anyInt()))
+                .thenReturn(Mono.empty());
+    }
+
+    @Test
+    @DisplayName("findById answers every not found with a new exception whose suppressed list does not grow")
+    public void findById_DoesNotGrowSuppressed_WhenManyRequestsReturnNotFound() {
+        for (int i = 0; i < REQUESTS; i++) {
+            client
+                .get()
+                .uri("/animes/{id}", 404)
+                .headers(headers -> headers.setBasicAuth(ADMIN_USER, PASSWORD))
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody()
+                .jsonPath("$.status").isEqualTo(404);
+        }
+
+        ArgumentCaptor<Throwable> errors = ArgumentCaptor.forClass(Throwable.class);
+        verify(globalExceptionHandler, atLeast(REQUESTS)).handle(any(), errors.capture());
+        List<Throwable> handled = errors.getAllValues();
+
+        Throwable first = handled.get(0);
+        Throwable last = handled.get(handled.size() - 1);
+        assertNotSame(first, last);
+        assertEquals(suppressedSize(first), suppressedSize(last));
+    }
+
+    // o OnAssemblyException do Reactor acumula uma linha por checkpoint na mensagem
+    private static int suppressedSize(Throwable error) {
+        return Arrays.stream(error.getSuppressed())
+                .mapToInt(suppressed -> String.valueOf(suppressed.getMessage()).length())
+                .sum() + error.getSuppressed().length;
+    }
+}
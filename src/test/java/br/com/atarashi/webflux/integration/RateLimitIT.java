@@ -0,0 +1,76 @@
+package br.com.atarashi.webflux.integration;
+
+import br.com.atarashi.webflux.domain.Anime;
+import br.com.atarashi.webflux.repository.AnimeRepository;
+import br.com.atarashi.webflux.util.AnimeCreator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.when;
+
+// cotas baixas de propósito: o cliente autenticado por HTTP Basic passa pela SecurityWebFilterChain real
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(properties = {
+        "admission.rate-limit.default.permits-per-second=0.5",
+        "admission.rate-limit.default.burst=2"
+})
+@AutoConfigureWebTestClient
+public class RateLimitIT {
+
+    private final static String ADMIN_USER = "gustavo";
+    private final static String PASSWORD = "devdojo";
+
+    @MockBean
+    private AnimeRepository animeRepositoryMock;
+
+    @Autowired
+    private WebTestClient client;
+
+    private final Anime anime = AnimeCreator.createValidAnime();
+
+    @BeforeEach
+    public void setUp() {
+        when(animeRepositoryMock.findById(anyInt()))
+                .thenReturn(Mono.just(anime));
+    }
+
+    @Test
+    @DisplayName("requests beyond the per-client quota return too many requests with Retry-After through the security chain")
+    public void findById_ReturnTooManyRequestsWithRetryAfter_WhenQuotaIsExhausted() {
+        for (int i = 0; i < 2; i++) {
+            client
+                .get()
+                .uri("/animes/{id}", 1)
+                .headers(headers -> headers.setBasicAuth(ADMIN_USER, PASSWORD))
+                .exchange()
+                .expectStatus().isOk();
+        }
+
+        String retryAfter = client
+            .get()
+            .uri("/animes/{id}", 1)
+            .headers(headers -> headers.setBasicAuth(ADMIN_USER, PASSWORD))
+            .exchange()
+            .expectStatus().isEqualTo(HttpStatus.TOO_MANY_REQUESTS)
+            .expectBody()
+            .jsonPath("$.status").isEqualTo(429)
+            .returnResult()
+            .getResponseHeaders()
+            .getFirst(HttpHeaders.RETRY_AFTER);
+
+        assertTrue(Long.parseLong(retryAfter) >= 1);
+    }
+}
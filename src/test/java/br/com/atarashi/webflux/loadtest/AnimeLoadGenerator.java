@@ -0,0 +1,288 @@
+package br.com.atarashi.webflux.loadtest;
+
+import br.com.atarashi.webflux.SpringWebfluxEssentialsApplication;
+import br.com.atarashi.webflux.domain.Anime;
+import br.com.atarashi.webflux.util.AnimeCreator;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunctions;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Executar manualmente: mvn -Ploadtest -DskipTests verify -Dloadtest.rate=500 -Dloadtest.concurrency=32
+// Sem -Dloadtest.url sobe a própria aplicação (porta 8082, H2 em memória, segurança ligada), com as cotas
+// por cliente altas o bastante para não responder 429: toda a carga sai de um único usuário e os percentis
+// mediriam as rejeições. Contra -Dloadtest.url as cotas do servidor precisam ser elevadas da mesma forma.
+//
+// Carga em malha aberta: cada worker tem uma agenda fixa de envios e a latência é medida a partir do
+// horário em que a requisição deveria ter saído, não de quando saiu. Se o servidor trava, as requisições
+// atrasadas entram no histograma com o tempo de espera (correção de coordinated omission, como no wrk2).
+public class AnimeLoadGenerator {
+
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static final int PAGE_SIZE = 20;
+
+    enum Operation {
+        READ, PAGE, WRITE, BATCH
+    }
+
+    private final WebClient client;
+    private final int concurrency;
+    private final long intervalNanos;
+    private final int batchSize;
+    private final Map<Operation, Integer> mix;
+    private final int totalWeight;
+    private final Map<Operation, Recorder> recorders = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+    private final AtomicInteger maxId = new AtomicInteger(1);
+
+    AnimeLoadGenerator(WebClient client, int concurrency, int rate, int batchSize, Map<Operation, Integer> mix) {
+        this.client = client;
+        this.concurrency = concurrency;
+        this.intervalNanos = TimeUnit.SECONDS.toNanos(concurrency) / rate;
+        this.batchSize = batchSize;
+        this.mix = mix;
+        this.totalWeight = mix.values().stream().mapToInt(Integer::intValue).sum();
+        for (Operation operation : Operation.values()) {
+            recorders.put(operation, new Recorder(HIGHEST_TRACKABLE_NANOS, 3));
+            errors.put(operation, new LongAdder());
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        String url = System.getProperty("loadtest.url");
+        int concurrency = Integer.getInteger("loadtest.concurrency", 16);
+        int rate = Integer.getInteger("loadtest.rate", 500);
+        int batchSize = Integer.getInteger("loadtest.batch-size", 10);
+        int seed = Integer.getInteger("loadtest.seed", 1_000);
+        Duration warmup = Duration.parse(System.getProperty("loadtest.warmup", "PT10S"));
+        Duration duration = Duration.parse(System.getProperty("loadtest.duration", "PT30S"));
+        Map<Operation, Integer> mix = parseMix(System.getProperty("loadtest.mix", "read=70,page=10,write=15,batch=5"));
+        Path output = Paths.get(System.getProperty("loadtest.output", "target/loadtest"));
+
+        ConfigurableApplicationContext context = url == null ? startApplication() : null;
+        try {
+            String baseUrl = url != null ? url : "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            WebClient client = WebClient.builder()
+                    .baseUrl(baseUrl)
+                    .clientConnector(new ReactorClientHttpConnector(
+                            HttpClient.create(ConnectionProvider.create("loadtest", concurrency))))
+                    .filter(ExchangeFilterFunctions.basicAuthentication(
+                            System.getProperty("loadtest.username", "gustavo"),
+                            System.getProperty("loadtest.password", "devdojo")))
+                    .build();
+
+            AnimeLoadGenerator generator = new AnimeLoadGenerator(client, concurrency, rate, batchSize, mix);
+            System.out.printf("Target %s: %d req/s, %d connections, warmup %s, duration %s, mix %s%n",
+                    baseUrl, rate, concurrency, warmup, duration, mix);
+            generator.seed(seed);
+            generator.run(warmup, duration);
+            generator.report(duration, output);
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext startApplication() {
+        return new SpringApplicationBuilder(SpringWebfluxEssentialsApplication.class)
+                .properties("server.port=8082",
+                        "spring.devtools.restart.enabled=false",
+                        "logging.level.org.springframework.data.r2dbc=INFO",
+                        "admission.rate-limit.default.permits-per-second=1000000",
+                        "admission.rate-limit.default.burst=1000000",
+                        "admission.rate-limit.list.permits-per-second=1000000",
+                        "admission.rate-limit.list.burst=1000000",
+                        "admission.rate-limit.batch.permits-per-second=1000000",
+                        "admission.rate-limit.batch.burst=1000000")
+                .run();
+    }
+
+    static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String entry : mix.split(",")) {
+            String[] pair = entry.trim().split("=");
+            int weight = Integer.parseInt(pair[1].trim());
+            if (weight > 0) {
+                weights.put(Operation.valueOf(pair[0].trim().toUpperCase()), weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("loadtest.mix must have at least one positive weight: " + mix);
+        }
+        return weights;
+    }
+
+    // popula o banco para que as leituras não fiquem todas no mesmo registro
+    void seed(int animes) {
+        Flux.range(0, (animes + batchSize - 1) / batchSize)
+                .concatMap(i -> execute(Operation.BATCH))
+                .blockLast();
+        System.out.printf("Seeded up to id %d%n", maxId.get());
+    }
+
+    void run(Duration warmup, Duration duration) {
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+        long end = measureFrom + duration.toNanos();
+
+        Flux.range(0, concurrency)
+                .flatMap(worker -> worker(start + worker * intervalNanos / concurrency, end, measureFrom), concurrency)
+                .blockLast();
+    }
+
+    private Flux<Void> worker(long firstSend, long end, long measureFrom) {
+        return Flux.<Long, Long>generate(() -> firstSend, (intended, sink) -> {
+            if (intended < end) {
+                sink.next(intended);
+            } else {
+                sink.complete();
+            }
+            return intended + intervalNanos;
+        }).concatMap(intended -> Mono.delay(Duration.ofNanos(Math.max(0, intended - System.nanoTime())))
+                .then(call(intended, measureFrom)), 1);
+    }
+
+    private Mono<Void> call(long intended, long measureFrom) {
+        Operation operation = nextOperation();
+        return Mono.defer(() -> execute(operation))
+                .timeout(REQUEST_TIMEOUT)
+                .onErrorReturn(false)
+                .doOnNext(success -> {
+                    if (intended < measureFrom) {
+                        return;
+                    }
+                    recorders.get(operation).recordValue(Math.min(System.nanoTime() - intended, HIGHEST_TRACKABLE_NANOS));
+                    if (!success) {
+                        errors.get(operation).increment();
+                    }
+                })
+                .then();
+    }
+
+    private Operation nextOperation() {
+        int pick = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (Map.Entry<Operation, Integer> entry : mix.entrySet()) {
+            pick -= entry.getValue();
+            if (pick < 0) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException("Unreachable");
+    }
+
+    private Mono<Boolean> execute(Operation operation) {
+        switch (operation) {
+            case READ:
+                return client.get()
+                        .uri("/animes/{id}", randomId())
+                        .exchange()
+                        .flatMap(AnimeLoadGenerator::release);
+            case PAGE:
+                return client.get()
+                        .uri(uri -> uri.path("/animes").queryParam("after", randomId()).queryParam("limit", PAGE_SIZE).build())
+                        .exchange()
+                        .flatMap(AnimeLoadGenerator::release);
+            case WRITE:
+                return client.post()
+                        .uri("/animes")
+                        .bodyValue(AnimeCreator.createAnimeToBeSaved())
+                        .exchange()
+                        .flatMap(this::saved);
+            case BATCH:
+                List<Anime> animes = new ArrayList<>(batchSize);
+                for (int i = 0; i < batchSize; i++) {
+                    animes.add(AnimeCreator.createAnimeToBeSaved());
+                }
+                return client.post()
+                        .uri("/animes/batch")
+                        .bodyValue(animes)
+                        .exchange()
+                        .flatMap(this::saved);
+            default:
+                throw new IllegalArgumentException("Unknown operation " + operation);
+        }
+    }
+
+    private int randomId() {
+        return ThreadLocalRandom.current().nextInt(1, maxId.get() + 1);
+    }
+
+    private Mono<Boolean> saved(ClientResponse response) {
+        if (!response.statusCode().is2xxSuccessful()) {
+            return release(response);
+        }
+        return response.bodyToFlux(Anime.class)
+                .doOnNext(anime -> maxId.accumulateAndGet(anime.getId(), Math::max))
+                .then(Mono.just(true));
+    }
+
+    private static Mono<Boolean> release(ClientResponse response) {
+        HttpStatus status = response.statusCode();
+        return response.releaseBody().thenReturn(status.is2xxSuccessful() || status == HttpStatus.NOT_MODIFIED);
+    }
+
+    void report(Duration duration, Path output) throws IOException {
+        Files.createDirectories(output);
+        double seconds = duration.toNanos() / 1e9;
+        Histogram total = new Histogram(HIGHEST_TRACKABLE_NANOS, 3);
+        long totalErrors = 0;
+
+        System.out.printf("%-8s %10s %10s %10s %10s %10s %10s %8s%n",
+                "op", "requests", "req/s", "p50 (ms)", "p99 (ms)", "p999 (ms)", "max (ms)", "errors");
+        for (Operation operation : mix.keySet()) {
+            Histogram histogram = recorders.get(operation).getIntervalHistogram();
+            long operationErrors = errors.get(operation).sum();
+            total.add(histogram);
+            totalErrors += operationErrors;
+            print(operation.name().toLowerCase(), histogram, seconds, operationErrors);
+            write(histogram, output.resolve(operation.name().toLowerCase() + ".hgrm"));
+        }
+        print("total", total, seconds, totalErrors);
+        write(total, output.resolve("total.hgrm"));
+        System.out.printf("Percentile distributions written to %s%n", output.toAbsolutePath());
+    }
+
+    private static void print(String name, Histogram histogram, double seconds, long errors) {
+        System.out.printf("%-8s %10d %10.1f %10.2f %10.2f %10.2f %10.2f %8d%n",
+                name, histogram.getTotalCount(), histogram.getTotalCount() / seconds,
+                millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(99)),
+                millis(histogram.getValueAtPercentile(99.9)), millis(histogram.getMaxValue()), errors);
+    }
+
+    // formato .hgrm do HdrHistogram, em milissegundos, pronto para o plotter
+    private static void write(Histogram histogram, Path file) throws IOException {
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file))) {
+            histogram.outputPercentileDistribution(out, 1e6);
+        }
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+}
@@ -0,0 +1,90 @@
+package br.com.atarashi.webflux.search;
+
+import br.com.atarashi.webflux.domain.Anime;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AnimeSearchIndexTest {
+
+    private AnimeSearchIndex animeSearchIndex;
+
+    @BeforeEach
+    public void setUp() {
+        animeSearchIndex = new AnimeSearchIndex();
+        animeSearchIndex.index(Anime.builder().id(1).name("Hellsing Ultimate").build());
+        animeSearchIndex.index(Anime.builder().id(2).name("Hellsing").build());
+        animeSearchIndex.index(Anime.builder().id(3).name("Fullmetal Alchemist: Brotherhood").build());
+        animeSearchIndex.index(Anime.builder().id(4).name("Shingeki no Kyojin").build());
+        animeSearchIndex.index(Anime.builder().id(5).name("Pokémon").build());
+    }
+
+    @Test
+    @DisplayName("search returns exact name first and then longer names when query matches a word")
+    public void search_RanksExactNameFirst_WhenQueryMatchesWord() {
+        assertEquals(List.of(2, 1), ids(animeSearchIndex.search("hellsing", 10)));
+    }
+
+    @Test
+    @DisplayName("search matches the beginning of any word when query is a prefix")
+    public void search_MatchesAnyWord_WhenQueryIsPrefix() {
+        assertEquals(List.of(3), ids(animeSearchIndex.search("broth", 10)));
+        assertEquals(List.of(3), ids(animeSearchIndex.search("full alch", 10)));
+        assertTrue(ids(animeSearchIndex.search("full kyo", 10)).isEmpty());
+    }
+
+    @Test
+    @DisplayName("search ignores case and accents")
+    public void search_IgnoresCaseAndAccents() {
+        assertEquals(List.of(5), ids(animeSearchIndex.search("POKEMON", 10)));
+    }
+
+    @Test
+    @DisplayName("search returns at most limit results")
+    public void search_ReturnsAtMostLimit() {
+        assertEquals(List.of(2), ids(animeSearchIndex.search("h", 1)));
+    }
+
+    @Test
+    @DisplayName("search returns nothing when query is blank")
+    public void search_ReturnsEmpty_WhenQueryIsBlank() {
+        assertTrue(animeSearchIndex.search(" - ", 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("index replaces the old name when anime is updated")
+    public void index_ReplacesOldName_WhenAnimeIsUpdated() {
+        animeSearchIndex.index(Anime.builder().id(2).name("Trigun").build());
+
+        assertEquals(List.of(1), ids(animeSearchIndex.search("hellsing", 10)));
+        assertEquals(List.of(2), ids(animeSearchIndex.search("trig", 10)));
+        assertEquals(5, animeSearchIndex.size());
+    }
+
+    @Test
+    @DisplayName("indexIfAbsent keeps the current name when anime is already indexed")
+    public void indexIfAbsent_KeepsCurrentName_WhenAlreadyIndexed() {
+        animeSearchIndex.indexIfAbsent(Anime.builder().id(2).name("Trigun").build());
+
+        assertTrue(ids(animeSearchIndex.search("trig", 10)).isEmpty());
+    }
+
+    @Test
+    @DisplayName("remove drops the anime from the results")
+    public void remove_DropsAnimeFromResults() {
+        animeSearchIndex.remove(2);
+
+        assertEquals(List.of(1), ids(animeSearchIndex.search("hellsing", 10)));
+        assertEquals(4, animeSearchIndex.size());
+    }
+
+    private List<Integer> ids(List<Anime> animes) {
+        return animes.stream().map(Anime::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,84 @@
+package br.com.atarashi.webflux.security;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(SpringExtension.class)
+class CachingReactiveAuthenticationManagerTest {
+
+    @Mock
+    private ReactiveAuthenticationManager delegateMock;
+
+    private CachingReactiveAuthenticationManager authenticationManager;
+
+    private final Authentication authenticated = new UsernamePasswordAuthenticationToken("gustavo", "devdojo", List.of());
+
+    @BeforeEach
+    public void setUp() {
+        authenticationManager = new CachingReactiveAuthenticationManager(delegateMock, 100, Duration.ofMinutes(1));
+
+        when(delegateMock.authenticate(any(Authentication.class)))
+                .thenReturn(Mono.just(authenticated));
+    }
+
+    @Test
+    @DisplayName("authenticate reuses the verified authentication when the same credentials are sent again")
+    public void authenticate_ReuseVerifiedAuthentication_WhenSameCredentials() {
+        StepVerifier.create(authenticationManager.authenticate(new UsernamePasswordAuthenticationToken("gustavo", "devdojo"))
+                .then(authenticationManager.authenticate(new UsernamePasswordAuthenticationToken("gustavo", "devdojo"))))
+                .expectSubscription()
+                .expectNext(authenticated)
+                .verifyComplete();
+
+        verify(delegateMock, times(1)).authenticate(any(Authentication.class));
+    }
+
+    @Test
+    @DisplayName("authenticate delegates again when the password is different")
+    public void authenticate_Delegate_WhenPasswordIsDifferent() {
+        StepVerifier.create(authenticationManager.authenticate(new UsernamePasswordAuthenticationToken("gustavo", "devdojo"))
+                .then(authenticationManager.authenticate(new UsernamePasswordAuthenticationToken("gustavo", "other"))))
+                .expectSubscription()
+                .expectNext(authenticated)
+                .verifyComplete();
+
+        verify(delegateMock, times(2)).authenticate(any(Authentication.class));
+    }
+
+    @Test
+    @DisplayName("authenticate does not cache failed authentications")
+    public void authenticate_DoNotCache_WhenAuthenticationFails() {
+        when(delegateMock.authenticate(any(Authentication.class)))
+                .thenReturn(Mono.error(new BadCredentialsException("Invalid Credentials")));
+
+        StepVerifier.create(authenticationManager.authenticate(new UsernamePasswordAuthenticationToken("gustavo", "wrong")))
+                .expectSubscription()
+                .expectError(BadCredentialsException.class)
+                .verify();
+
+        StepVerifier.create(authenticationManager.authenticate(new UsernamePasswordAuthenticationToken("gustavo", "wrong")))
+                .expectSubscription()
+                .expectError(BadCredentialsException.class)
+                .verify();
+
+        verify(delegateMock, times(2)).authenticate(any(Authentication.class));
+    }
+}
@@ -0,0 +1,29 @@
+package br.com.atarashi.webflux.security;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JwtTokenServiceTest {
+
+    @Test
+    @DisplayName("constructor rejects a configured secret shorter than 32 bytes")
+    public void constructor_Fails_WhenSecretIsTooShort() {
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> new JwtTokenService("too-short-secret", Duration.ofMinutes(15)));
+
+        assertTrue(e.getMessage().contains("security.jwt.secret"));
+    }
+
+    @Test
+    @DisplayName("constructor accepts a 32 byte secret and a missing one")
+    public void constructor_Succeeds_WhenSecretIsLongEnoughOrMissing() {
+        assertDoesNotThrow(() -> new JwtTokenService("0123456789abcdef0123456789abcdef", Duration.ofMinutes(15)));
+        assertDoesNotThrow(() -> new JwtTokenService("", Duration.ofMinutes(15)));
+    }
+}
@@ -0,0 +1,76 @@
+package br.com.atarashi.webflux.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MeteredReactiveAuthenticationManagerTest {
+
+    private final Authentication authentication = new UsernamePasswordAuthenticationToken("gustavo", "devdojo");
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    @DisplayName("authenticate records success when delegate authenticates")
+    public void authenticate_RecordsSuccess_WhenDelegateAuthenticates() {
+        MeteredReactiveAuthenticationManager manager =
+                new MeteredReactiveAuthenticationManager(Mono::just, meterRegistry, "basic");
+
+        StepVerifier.create(manager.authenticate(authentication))
+                .expectNext(authentication)
+                .verifyComplete();
+
+        assertEquals(1, count("success"));
+        assertEquals(0, count("failure"));
+    }
+
+    @Test
+    @DisplayName("authenticate records failure when credentials are rejected")
+    public void authenticate_RecordsFailure_WhenCredentialsAreRejected() {
+        MeteredReactiveAuthenticationManager manager = new MeteredReactiveAuthenticationManager(
+                auth -> Mono.error(new BadCredentialsException("Invalid Credentials")), meterRegistry, "basic");
+
+        StepVerifier.create(manager.authenticate(authentication))
+                .expectError(BadCredentialsException.class)
+                .verify();
+
+        assertEquals(1, count("failure"));
+    }
+
+    @Test
+    @DisplayName("authenticate records error when verification is not available")
+    public void authenticate_RecordsError_WhenVerificationIsNotAvailable() {
+        MeteredReactiveAuthenticationManager manager = new MeteredReactiveAuthenticationManager(
+                auth -> Mono.error(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE)), meterRegistry, "basic");
+
+        StepVerifier.create(manager.authenticate(authentication))
+                .expectError(ResponseStatusException.class)
+                .verify();
+
+        assertEquals(1, count("error"));
+        assertEquals(0, count("failure"));
+    }
+
+    private long count(String outcome) {
+        return meterRegistry.get("security.authentications")
+                .tag("mechanism", "basic")
+                .tag("outcome", outcome)
+                .timer()
+                .count();
+    }
+}
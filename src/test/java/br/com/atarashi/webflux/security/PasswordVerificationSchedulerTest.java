@@ -0,0 +1,65 @@
+package br.com.atarashi.webflux.security;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.factory.PasswordEncoderFactories;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PasswordVerificationSchedulerTest {
+
+    private PasswordVerificationScheduler passwordVerificationScheduler;
+
+    @BeforeEach
+    public void setUp() {
+        passwordVerificationScheduler = new PasswordVerificationScheduler(1, 1);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        passwordVerificationScheduler.destroy();
+    }
+
+    @Test
+    @DisplayName("admit returns service unavailable when the queue limit is reached")
+    public void admit_ReturnServiceUnavailable_WhenQueueIsFull() {
+        Disposable running = passwordVerificationScheduler.admit(Mono.never()).subscribe();
+
+        StepVerifier.create(passwordVerificationScheduler.admit(Mono.just("verified")))
+                .expectSubscription()
+                .expectErrorMatches(e -> e instanceof ResponseStatusException
+                        && ((ResponseStatusException) e).getStatus() == HttpStatus.SERVICE_UNAVAILABLE)
+                .verify();
+
+        assertEquals(1, passwordVerificationScheduler.getRejected());
+
+        running.dispose();
+
+        StepVerifier.create(passwordVerificationScheduler.admit(Mono.just("verified")))
+                .expectSubscription()
+                .expectNext("verified")
+                .verifyComplete();
+
+        assertEquals(0, passwordVerificationScheduler.getPending());
+    }
+
+    @Test
+    @DisplayName("timed records the verification latency of the password encoder")
+    public void timed_RecordVerification_WhenPasswordMatches() {
+        PasswordEncoder delegate = PasswordEncoderFactories.createDelegatingPasswordEncoder();
+        PasswordEncoder passwordEncoder = passwordVerificationScheduler.timed(delegate);
+
+        assertTrue(passwordEncoder.matches("devdojo", delegate.encode("devdojo")));
+        assertEquals(1, passwordVerificationScheduler.getVerifications());
+        assertTrue(passwordVerificationScheduler.getVerificationNanos() > 0);
+    }
+}
@@ -0,0 +1,228 @@
+package br.com.atarashi.webflux.service;
+
+import br.com.atarashi.webflux.domain.Anime;
+import br.com.atarashi.webflux.domain.AnimeImportStatus;
+import br.com.atarashi.webflux.export.RowExporter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import reactor.test.publisher.TestPublisher;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(SpringExtension.class)
+class AnimeImportServiceTest {
+
+    private static final int MAXIMUM_JOBS = 10;
+
+    private AnimeImportService animeImportService;
+
+    @Mock
+    private AnimeService animeServiceMock;
+
+    private final DefaultDataBufferFactory bufferFactory = new DefaultDataBufferFactory();
+
+    @BeforeEach
+    public void setUp() {
+        animeImportService = new AnimeImportService(animeServiceMock, new RowExporter(DataSize.ofKilobytes(32)),
+                2, DataSize.ofKilobytes(64), 2, 2, 1, MAXIMUM_JOBS, Duration.ofHours(1), Duration.ofMinutes(10));
+
+        when(animeServiceMock.saveChunk(anyList()))
+                .thenAnswer(invocation -> Mono.just(invocation.<List<Anime>>getArgument(0).size()));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        animeImportService.destroy();
+    }
+
+    @Test
+    @DisplayName("importCsv saves the valid rows and keeps the invalid ones in the error report")
+    public void importCsv_SavesValidRowsAndReportsInvalidOnes_WhenSuccessful() {
+        Flux<DataBuffer> body = csv("id,name,version\n1,Naruto,0\n2,,0\n3,Ble", "ach\n4,One Piece,0\n");
+
+        AnimeImportStatus status = animeImportService.importCsv(createImport(), body).block();
+
+        assertEquals(AnimeImportStatus.State.COMPLETED, status.getState());
+        assertEquals(4, status.getRowsRead());
+        assertEquals(2, status.getRowsSaved());
+        assertEquals(2, status.getRowsInvalid());
+        assertTrue(status.isErrorReportTruncated());
+        verify(animeServiceMock).saveChunk(List.of(Anime.builder().name("Naruto").build(), Anime.builder().name("One Piece").build()));
+
+        // max-errors = 1: só a primeira linha recusada fica no relatório
+        StepVerifier.create(animeImportService.errorReport(status.getId(), bufferFactory)
+                        .flatMap(report -> DataBufferUtils.join(report))
+                        .map(joined -> joined.toString(StandardCharsets.UTF_8)))
+                .expectSubscription()
+                .expectNext("line,error,name\r\n3,Invalid Name,\r\n")
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("importCsv fails and records the reason when the header has no name column")
+    public void importCsv_FailsJob_WhenHeaderHasNoNameColumn() {
+        StepVerifier.create(animeImportService.importCsv(createImport(), csv("id,title\n1,Naruto\n")))
+                .expectSubscription()
+                .expectErrorMatches(e -> ((ResponseStatusException) e).getStatus() == HttpStatus.BAD_REQUEST)
+                .verify();
+
+        StepVerifier.create(animeImportService.findAll())
+                .expectSubscription()
+                .expectNextMatches(status -> status.getState() == AnimeImportStatus.State.FAILED
+                        && "CSV header must have a name column".equals(status.getError()))
+                .verifyComplete();
+        verify(animeServiceMock, never()).saveChunk(anyList());
+    }
+
+    @Test
+    @DisplayName("create returns the id of a pending import before any CSV is uploaded")
+    public void create_ReturnPendingImport_WhenSuccessful() {
+        AnimeImportStatus created = animeImportService.create().block();
+
+        StepVerifier.create(animeImportService.findById(created.getId()))
+                .expectSubscription()
+                .expectNextMatches(status -> status.getState() == AnimeImportStatus.State.PENDING
+                        && status.getCreatedAt() != null && status.getStartedAt() == null)
+                .verifyComplete();
+        verify(animeServiceMock, never()).saveChunk(anyList());
+    }
+
+    @Test
+    @DisplayName("findById returns the running import while its CSV is still being uploaded")
+    public void findById_ReturnRunningImport_WhileCsvIsUploading() {
+        String id = createImport();
+        TestPublisher<DataBuffer> upload = TestPublisher.create();
+
+        StepVerifier.create(animeImportService.importCsv(id, upload.flux()))
+                .expectSubscription()
+                .then(() -> upload.next(bufferFactory.wrap("name\nNaruto\n".getBytes(StandardCharsets.UTF_8))))
+                .then(() -> assertEquals(AnimeImportStatus.State.RUNNING, animeImportService.findById(id).block().getState()))
+                .then(upload::complete)
+                .expectNextMatches(status -> status.getState() == AnimeImportStatus.State.COMPLETED && status.getRowsSaved() == 1)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("findById keeps the running import when more than maximum-jobs imports finish")
+    public void findById_ReturnRunningImport_WhenFinishedImportsExceedMaximumJobs() {
+        String id = createImport();
+        TestPublisher<DataBuffer> upload = TestPublisher.create();
+
+        StepVerifier.create(animeImportService.importCsv(id, upload.flux()))
+                .expectSubscription()
+                .then(() -> {
+                    for (int i = 0; i < MAXIMUM_JOBS * 2; i++) {
+                        animeImportService.importCsv(createImport(), csv("name\nNaruto\n")).block();
+                    }
+                })
+                .then(() -> assertEquals(AnimeImportStatus.State.RUNNING, animeImportService.findById(id).block().getState()))
+                .then(() -> upload.next(bufferFactory.wrap("name\nBleach\n".getBytes(StandardCharsets.UTF_8))))
+                .then(upload::complete)
+                .expectNextMatches(status -> status.getState() == AnimeImportStatus.State.COMPLETED && status.getRowsSaved() == 1)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("create returns Mono error when maximum-jobs imports are still pending")
+    public void create_ReturnMonoError_WhenActiveImportsReachMaximumJobs() {
+        List<String> pending = new ArrayList<>();
+        for (int i = 0; i < MAXIMUM_JOBS; i++) {
+            pending.add(createImport());
+        }
+
+        StepVerifier.create(animeImportService.create())
+                .expectSubscription()
+                .expectErrorMatches(e -> ((ResponseStatusException) e).getStatus() == HttpStatus.SERVICE_UNAVAILABLE)
+                .verify();
+        for (String id : pending) {
+            assertEquals(AnimeImportStatus.State.PENDING, animeImportService.findById(id).block().getState());
+        }
+    }
+
+    @Test
+    @DisplayName("create fails the pending imports that did not receive their CSV within the pending timeout")
+    public void create_FailsPendingImport_WhenPendingTimeoutElapses() {
+        animeImportService.destroy();
+        animeImportService = new AnimeImportService(animeServiceMock, new RowExporter(DataSize.ofKilobytes(32)),
+                2, DataSize.ofKilobytes(64), 2, 2, 1, 1, Duration.ofHours(1), Duration.ZERO);
+        String expired = createImport();
+
+        String created = createImport();
+
+        StepVerifier.create(animeImportService.findById(expired))
+                .expectSubscription()
+                .expectNextMatches(status -> status.getState() == AnimeImportStatus.State.FAILED
+                        && "Import expired before its CSV was uploaded".equals(status.getError()))
+                .verifyComplete();
+        StepVerifier.create(animeImportService.importCsv(expired, csv("name\nNaruto\n")))
+                .expectSubscription()
+                .expectErrorMatches(e -> ((ResponseStatusException) e).getStatus() == HttpStatus.CONFLICT)
+                .verify();
+        assertEquals(AnimeImportStatus.State.PENDING, animeImportService.findById(created).block().getState());
+    }
+
+    @Test
+    @DisplayName("importCsv returns Mono error when the import already received its CSV")
+    public void importCsv_ReturnMonoError_WhenImportAlreadyStarted() {
+        String id = createImport();
+        animeImportService.importCsv(id, csv("name\nNaruto\n")).block();
+
+        StepVerifier.create(animeImportService.importCsv(id, csv("name\nBleach\n")))
+                .expectSubscription()
+                .expectErrorMatches(e -> ((ResponseStatusException) e).getStatus() == HttpStatus.CONFLICT)
+                .verify();
+        verify(animeServiceMock).saveChunk(anyList());
+    }
+
+    @Test
+    @DisplayName("importCsv returns Mono error when the import does not exist")
+    public void importCsv_ReturnMonoError_WhenImportDoesNotExist() {
+        StepVerifier.create(animeImportService.importCsv("unknown", csv("name\nNaruto\n")))
+                .expectSubscription()
+                .expectErrorMatches(e -> ((ResponseStatusException) e).getStatus() == HttpStatus.NOT_FOUND)
+                .verify();
+        verify(animeServiceMock, never()).saveChunk(anyList());
+    }
+
+    @Test
+    @DisplayName("findById returns Mono error when the import does not exist")
+    public void findById_ReturnMonoError_WhenImportDoesNotExist() {
+        StepVerifier.create(animeImportService.findById("unknown"))
+                .expectSubscription()
+                .expectErrorMatches(e -> ((ResponseStatusException) e).getStatus() == HttpStatus.NOT_FOUND)
+                .verify();
+    }
+
+    private String createImport() {
+        return animeImportService.create().block().getId();
+    }
+
+    private Flux<DataBuffer> csv(String... parts) {
+        return Flux.fromArray(parts)
+                .map(part -> bufferFactory.wrap(part.getBytes(StandardCharsets.UTF_8)));
+    }
+}
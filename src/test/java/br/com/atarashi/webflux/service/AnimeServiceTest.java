@@ -1,13 +1,23 @@
 package br.com.atarashi.webflux.service;
 
+import br.com.atarashi.webflux.cache.AnimeCache;
 import br.com.atarashi.webflux.domain.Anime;
+import br.com.atarashi.webflux.domain.AnimeChunkAck;
+import br.com.atarashi.webflux.domain.AnimePage;
 import br.com.atarashi.webflux.repository.AnimeRepository;
+import br.com.atarashi.webflux.search.AnimeSearchIndex;
 import br.com.atarashi.webflux.util.AnimeCreator;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
+import org.springframework.http.HttpStatus;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.reactive.AbstractReactiveTransactionManager;
+import org.springframework.transaction.reactive.GenericReactiveTransaction;
+import org.springframework.transaction.reactive.TransactionSynchronizationManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
 import org.springframework.web.server.ResponseStatusException;
 import reactor.blockhound.BlockHound;
 import reactor.blockhound.BlockingOperationError;
@@ -16,23 +26,36 @@ import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
 import reactor.test.StepVerifier;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(SpringExtension.class)
 class AnimeServiceTest {
 
-    @InjectMocks
     private AnimeService animeService;
 
     @Mock
     private AnimeRepository animeRepositoryMock;
 
+    @Mock
+    private TransactionalOperator transactionalOperatorMock;
+
+    @Spy
+    private AnimeCache animeCache = new AnimeCache(100, Duration.ofMinutes(1));
+
+    @Spy
+    private AnimeSearchIndex animeSearchIndex = new AnimeSearchIndex();
+
     private final Anime anime = AnimeCreator.createValidAnime();
 
     @BeforeAll
@@ -42,24 +65,44 @@ class AnimeServiceTest {
 
     @BeforeEach
     public void setUp() {
+        animeService = new AnimeService(animeRepositoryMock, animeCache, animeSearchIndex, transactionalOperatorMock, 2, 2);
+
+        when(transactionalOperatorMock.transactional(any(Flux.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
         when(animeRepositoryMock.findAll())
                 .thenReturn(Flux.just(anime));
 
         when(animeRepositoryMock.findById(anyInt()))
                 .thenReturn(Mono.just(anime));
 
+        when(animeRepositoryMock.findPage(anyInt(), anyInt()))
+                .thenReturn(Flux.just(anime));
+
         when(animeRepositoryMock.save(AnimeCreator.createAnimeToBeSaved()))
                 .thenReturn(Mono.just(anime));
 
         when(animeRepositoryMock
-                .saveAll(List.of(AnimeCreator.createAnimeToBeSaved(), AnimeCreator.createAnimeToBeSaved())))
+                .insertAll(List.of(AnimeCreator.createAnimeToBeSaved(), AnimeCreator.createAnimeToBeSaved())))
                 .thenReturn(Flux.just(anime, anime));
 
         when(animeRepositoryMock.delete(any(Anime.class)))
                 .thenReturn(Mono.empty());
 
-        when(animeRepositoryMock.save(AnimeCreator.createValidAnime()))
-                .thenReturn(Mono.empty());
+        when(animeRepositoryMock.updateName(anyInt(), anyString()))
+                .thenReturn(Mono.just(1));
+
+        when(animeRepositoryMock.updateNameIfVersion(anyInt(), anyString(), anyInt()))
+                .thenReturn(Mono.just(1));
+
+        when(animeRepositoryMock.remove(anyInt()))
+                .thenReturn(Mono.just(1));
+
+        when(animeRepositoryMock.removeIfVersion(anyInt(), anyInt()))
+                .thenReturn(Mono.just(1));
+
+        when(animeRepositoryMock.existsById(anyInt()))
+                .thenReturn(Mono.just(true));
     }
 
     @Test
@@ -88,6 +131,38 @@ class AnimeServiceTest {
                 .verifyComplete();
     }
 
+    @Test
+    @DisplayName("streamAll returns a flux of anime")
+    public void streamAll_ReturnFluxOfAnime_WhenSuccessful() {
+        StepVerifier.create(animeService.streamAll())
+                .expectSubscription()
+                .expectNext(anime)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("findPage returns a page without next cursor when there are no more animes")
+    public void findPage_ReturnPageWithoutCursor_WhenLastPage() {
+        StepVerifier.create(animeService.findPage(0, 10))
+                .expectSubscription()
+                .expectNext(new AnimePage(List.of(anime), null))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("findPage returns a page with the last id as next cursor when there are more animes")
+    public void findPage_ReturnPageWithCursor_WhenThereAreMoreAnimes() {
+        Anime nextAnime = anime.withId(2);
+
+        when(animeRepositoryMock.findPage(0, 2))
+                .thenReturn(Flux.just(anime, nextAnime));
+
+        StepVerifier.create(animeService.findPage(0, 1))
+                .expectSubscription()
+                .expectNext(new AnimePage(List.of(anime), anime.getId()))
+                .verifyComplete();
+    }
+
     @Test
     @DisplayName("findById returns Mono with anime when it exists")
     public void findById_ReturnMonoAnime_WhenSuccessful() {
@@ -97,6 +172,56 @@ class AnimeServiceTest {
                 .verifyComplete();
     }
 
+    @Test
+    @DisplayName("findById returns cached anime without querying the repository again")
+    public void findById_ReturnCachedAnime_WhenCalledTwice() {
+        StepVerifier.create(animeService.findById(1).then(animeService.findById(1)))
+                .expectSubscription()
+                .expectNext(anime)
+                .verifyComplete();
+
+        verify(animeRepositoryMock, times(1)).findById(1);
+    }
+
+    @Test
+    @DisplayName("findById queries the repository again after the anime is updated")
+    public void findById_ReloadAnime_WhenAnimeIsUpdated() {
+        StepVerifier.create(animeService.findById(1)
+                .then(animeService.update(AnimeCreator.createValidAnime()))
+                .then(animeService.findById(1)))
+                .expectSubscription()
+                .expectNext(anime)
+                .verifyComplete();
+
+        verify(animeRepositoryMock, times(2)).findById(1);
+    }
+
+    @Test
+    @DisplayName("search returns animes indexed at startup when name matches the query")
+    public void search_ReturnsIndexedAnimes_WhenNameMatches() {
+        animeService.buildSearchIndex();
+
+        StepVerifier.create(animeService.search(anime.getName().substring(0, 3), 10))
+                .expectSubscription()
+                .expectNext(anime)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("search reflects saved and deleted animes")
+    public void search_ReflectsWrites_WhenAnimesAreSavedAndDeleted() {
+        StepVerifier.create(animeService.save(AnimeCreator.createAnimeToBeSaved())
+                .thenMany(animeService.search(anime.getName(), 10)))
+                .expectSubscription()
+                .expectNext(anime)
+                .verifyComplete();
+
+        StepVerifier.create(animeService.delete(anime.getId())
+                .thenMany(animeService.search(anime.getName(), 10)))
+                .expectSubscription()
+                .verifyComplete();
+    }
+
     @Test
     @DisplayName("findById returns Mono error when anime does not exist")
     public void findById_ReturnMonoError_WhenEmptyMonoIsReturned() {
@@ -136,15 +261,40 @@ class AnimeServiceTest {
     public void saveAll_ReturnsMonoError_WhenContainsInvalidName() {
         Anime animeToBeSaved = AnimeCreator.createAnimeToBeSaved();
 
-        when(animeRepositoryMock
-                .saveAll(anyIterable()))
-                .thenReturn(Flux.just(anime, anime.withName("")));
-
         StepVerifier.create(animeService.saveAll(List.of(animeToBeSaved, animeToBeSaved.withName(""))))
                 .expectSubscription()
-                .expectNext(anime)
                 .expectError(ResponseStatusException.class)
                 .verify();
+
+        verify(animeRepositoryMock, never()).insertAll(anyList());
+    }
+
+    @Test
+    @DisplayName("ingest acknowledges each chunk in order when successful")
+    public void ingest_AcknowledgesEachChunk_WhenSuccessful() {
+        Anime animeToBeSaved = AnimeCreator.createAnimeToBeSaved();
+
+        StepVerifier.create(animeService.ingest(Flux.just(animeToBeSaved, animeToBeSaved, animeToBeSaved, animeToBeSaved)))
+                .expectSubscription()
+                .expectNext(new AnimeChunkAck(0, 2, anime.getId(), anime.getId(), null))
+                .expectNext(new AnimeChunkAck(1, 2, anime.getId(), anime.getId(), null))
+                .verifyComplete();
+
+        verify(transactionalOperatorMock, times(2)).transactional(any(Flux.class));
+    }
+
+    @Test
+    @DisplayName("ingest acknowledges chunk with error and keeps going when it contains null or empty name")
+    public void ingest_AcknowledgesChunkWithError_WhenContainsInvalidName() {
+        Anime animeToBeSaved = AnimeCreator.createAnimeToBeSaved();
+
+        StepVerifier.create(animeService.ingest(Flux.just(animeToBeSaved, animeToBeSaved.withName(""), animeToBeSaved, animeToBeSaved)))
+                .expectSubscription()
+                .expectNext(new AnimeChunkAck(0, 0, null, null, "Invalid Name"))
+                .expectNext(new AnimeChunkAck(1, 2, anime.getId(), anime.getId(), null))
+                .verifyComplete();
+
+        verify(animeRepositoryMock, times(1)).insertAll(anyList());
     }
 
     @Test
@@ -158,8 +308,8 @@ class AnimeServiceTest {
     @Test
     @DisplayName("delete returns Mono error when anime does not exist")
     public void delete_REturnMonoError_WhenEmptyMonoIsReturned() {
-        when(animeRepositoryMock.findById(anyInt()))
-                .thenReturn(Mono.empty());
+        when(animeRepositoryMock.remove(anyInt()))
+                .thenReturn(Mono.just(0));
 
         StepVerifier.create(animeService.delete(1))
                 .expectSubscription()
@@ -178,8 +328,8 @@ class AnimeServiceTest {
     @Test
     @DisplayName("update returns MOno error when anime does exist")
     public void update_ReturnMonoError_WhenEmptyMonoIsReturned() {
-        when(animeRepositoryMock.findById(anyInt()))
-                .thenReturn(Mono.empty());
+        when(animeRepositoryMock.updateName(anyInt(), anyString()))
+                .thenReturn(Mono.just(0));
 
         StepVerifier.create(animeService.update(AnimeCreator.createValidAnime()))
                 .expectSubscription()
@@ -187,4 +337,114 @@ class AnimeServiceTest {
                 .verify();
     }
 
-}
\ No newline at end of file
+    @Test
+    @DisplayName("update writes with a single conditional statement when version is informed")
+    public void update_UsesConditionalStatement_WhenVersionIsInformed() {
+        StepVerifier.create(animeService.update(AnimeCreator.createValidAnime().withVersion(3)))
+                .expectSubscription()
+                .verifyComplete();
+
+        verify(animeRepositoryMock).updateNameIfVersion(1, anime.getName(), 3);
+        verify(animeRepositoryMock, never()).findById(anyInt());
+    }
+
+    @Test
+    @DisplayName("update returns Mono error with precondition failed when version is outdated")
+    public void update_ReturnMonoErrorPreconditionFailed_WhenVersionIsOutdated() {
+        when(animeRepositoryMock.updateNameIfVersion(anyInt(), anyString(), anyInt()))
+                .thenReturn(Mono.just(0));
+
+        StepVerifier.create(animeService.update(AnimeCreator.createValidAnime().withVersion(3)))
+                .expectSubscription()
+                .expectErrorMatches(e -> ((ResponseStatusException) e).getStatus() == HttpStatus.PRECONDITION_FAILED)
+                .verify();
+    }
+
+    @Test
+    @DisplayName("update returns Mono error with not found when version is informed and anime does not exist")
+    public void update_ReturnMonoErrorNotFound_WhenVersionIsInformedAndAnimeDoesNotExist() {
+        when(animeRepositoryMock.updateNameIfVersion(anyInt(), anyString(), anyInt()))
+                .thenReturn(Mono.just(0));
+        when(animeRepositoryMock.existsById(anyInt()))
+                .thenReturn(Mono.just(false));
+
+        StepVerifier.create(animeService.update(AnimeCreator.createValidAnime().withVersion(3)))
+                .expectSubscription()
+                .expectErrorMatches(e -> ((ResponseStatusException) e).getStatus() == HttpStatus.NOT_FOUND)
+                .verify();
+    }
+
+    @Test
+    @DisplayName("delete returns Mono error with precondition failed when version is outdated")
+    public void delete_ReturnMonoErrorPreconditionFailed_WhenVersionIsOutdated() {
+        when(animeRepositoryMock.removeIfVersion(anyInt(), anyInt()))
+                .thenReturn(Mono.just(0));
+
+        StepVerifier.create(animeService.delete(1, 3))
+                .expectSubscription()
+                .expectErrorMatches(e -> ((ResponseStatusException) e).getStatus() == HttpStatus.PRECONDITION_FAILED)
+                .verify();
+    }
+
+    @Test
+    @DisplayName("saveChunk bumps the collection version and indexes the animes only after the transaction commits")
+    public void saveChunk_PublishesWrites_WhenTransactionCommits() {
+        AnimeService transactionalService = new AnimeService(animeRepositoryMock, animeCache, animeSearchIndex,
+                TransactionalOperator.create(new NoOpTransactionManager()), 2, 2);
+        when(animeRepositoryMock.insertAll(anyList()))
+                .thenReturn(Flux.just(anime));
+
+        StepVerifier.create(transactionalService.saveChunk(List.of(AnimeCreator.createAnimeToBeSaved())))
+                .expectSubscription()
+                .expectNext(1)
+                .verifyComplete();
+
+        assertEquals(1, transactionalService.collectionVersion());
+        verify(animeSearchIndex).index(anime);
+    }
+
+    @Test
+    @DisplayName("saveChunk neither bumps the collection version nor indexes the animes when the transaction rolls back")
+    public void saveChunk_DoesNotPublishWrites_WhenTransactionRollsBack() {
+        AnimeService transactionalService = new AnimeService(animeRepositoryMock, animeCache, animeSearchIndex,
+                TransactionalOperator.create(new NoOpTransactionManager()), 2, 2);
+        when(animeRepositoryMock.insertAll(anyList()))
+                .thenReturn(Flux.just(anime).concatWith(Flux.error(new IllegalStateException("insert failed"))));
+
+        StepVerifier.create(transactionalService.saveChunk(List.of(AnimeCreator.createAnimeToBeSaved())))
+                .expectSubscription()
+                .expectError(IllegalStateException.class)
+                .verify();
+
+        assertEquals(0, transactionalService.collectionVersion());
+        verify(animeSearchIndex, never()).index(any(Anime.class));
+    }
+
+    // transação sem banco: só dispara as sincronizações de commit e rollback
+    private static class NoOpTransactionManager extends AbstractReactiveTransactionManager {
+
+        @Override
+        protected Object doGetTransaction(TransactionSynchronizationManager synchronizationManager) {
+            return new Object();
+        }
+
+        @Override
+        protected Mono<Void> doBegin(TransactionSynchronizationManager synchronizationManager, Object transaction,
+                                     TransactionDefinition definition) {
+            return Mono.empty();
+        }
+
+        @Override
+        protected Mono<Void> doCommit(TransactionSynchronizationManager synchronizationManager,
+                                      GenericReactiveTransaction status) {
+            return Mono.empty();
+        }
+
+        @Override
+        protected Mono<Void> doRollback(TransactionSynchronizationManager synchronizationManager,
+                                        GenericReactiveTransaction status) {
+            return Mono.empty();
+        }
+    }
+
+}
@@ -0,0 +1,450 @@
+package br.com.atarashi.webflux.service;
+
+import br.com.atarashi.webflux.cache.GastoTagInterner;
+import br.com.atarashi.webflux.domain.Gasto;
+import br.com.atarashi.webflux.domain.GastoTotal;
+import br.com.atarashi.webflux.domain.GastoTotalsDelta;
+import br.com.atarashi.webflux.domain.GastoTotalsRebuild;
+import br.com.atarashi.webflux.repository.GastoRepository;
+import br.com.atarashi.webflux.repository.GastoTagRepository;
+import br.com.atarashi.webflux.repository.GastoTotalsRepository;
+import br.com.atarashi.webflux.util.GastoCreator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.blockhound.BlockHound;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(SpringExtension.class)
+class GastoServiceTest {
+
+    private GastoService gastoService;
+
+    @Mock
+    private GastoRepository gastoRepositoryMock;
+
+    @Mock
+    private GastoTotalsRepository gastoTotalsRepositoryMock;
+
+    @Mock
+    private GastoTagRepository gastoTagRepositoryMock;
+
+    @Mock
+    private GastoTagInterner gastoTagInternerMock;
+
+    @Mock
+    private TransactionalOperator transactionalOperatorMock;
+
+    private final Gasto gasto = GastoCreator.createValidGasto();
+
+    @BeforeAll
+    public static void blockHoundSetup() {
+        BlockHound.install();
+    }
+
+    @BeforeEach
+    public void setUp() {
+        gastoService = new GastoService(gastoRepositoryMock, gastoTotalsRepositoryMock, gastoTagRepositoryMock,
+                gastoTagInternerMock, transactionalOperatorMock, 10, 2);
+
+        when(transactionalOperatorMock.transactional(any(Mono.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        when(gastoRepositoryMock.findById(anyLong()))
+                .thenReturn(Mono.just(gasto));
+
+        when(gastoRepositoryMock.findByIdForUpdate(anyLong()))
+                .thenReturn(Mono.just(gasto));
+
+        when(gastoRepositoryMock.remove(anyLong()))
+                .thenReturn(Mono.just(1));
+
+        when(gastoTotalsRepositoryMock.apply(any(GastoTotalsDelta.class)))
+                .thenReturn(Mono.empty());
+
+        when(gastoTagInternerMock.intern(anyList()))
+                .thenReturn(Mono.just(List.of(1L, 2L)));
+
+        when(gastoTagRepositoryMock.link(anyLong(), any(LocalDateTime.class), anyList()))
+                .thenReturn(Mono.empty());
+
+        when(gastoTagRepositoryMock.unlink(anyLong()))
+                .thenReturn(Mono.empty());
+    }
+
+    // um rebuild que ficou rodando no teste não passa para o próximo
+    @AfterEach
+    public void tearDown() {
+        gastoService.destroy();
+    }
+
+    @Test
+    @DisplayName("findById returns a Mono with expense when it exists")
+    public void findById_ReturnMonoGasto_WhenSuccessful() {
+        StepVerifier.create(gastoService.findById(1))
+                .expectSubscription()
+                .expectNext(gasto)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("findById returns Mono error when expense does not exist")
+    public void findById_ReturnMonoError_WhenEmptyMonoIsReturned() {
+        when(gastoRepositoryMock.findById(anyLong()))
+                .thenReturn(Mono.empty());
+
+        StepVerifier.create(gastoService.findById(1))
+                .expectSubscription()
+                .expectErrorMatches(e -> ((ResponseStatusException) e).getStatus() == HttpStatus.NOT_FOUND)
+                .verify();
+    }
+
+    @Test
+    @DisplayName("save ignores the client id and adds the expense to the totals")
+    public void save_CreatesGastoAndUpdatesTotals_WhenSuccessful() {
+        Gasto gastoToBeSaved = GastoCreator.createGastoToBeSaved();
+        when(gastoRepositoryMock.save(gastoToBeSaved))
+                .thenReturn(Mono.just(gasto));
+
+        StepVerifier.create(gastoService.save(gastoToBeSaved.withId(42L)))
+                .expectSubscription()
+                .expectNext(gasto)
+                .verifyComplete();
+
+        ArgumentCaptor<GastoTotalsDelta> delta = ArgumentCaptor.forClass(GastoTotalsDelta.class);
+        verify(gastoTotalsRepositoryMock).apply(delta.capture());
+        GastoTotalsDelta.Totals day = delta.getValue().getDays().get(LocalDate.of(2020, 10, 16));
+        assertEquals(1, day.getCount());
+        assertEquals(new BigDecimal("150.00"), day.getTotal());
+        verify(gastoTagInternerMock).intern(List.of("mercado", "casa"));
+        verify(gastoTagRepositoryMock).link(1L, gasto.getData(), List.of(1L, 2L));
+    }
+
+    @Test
+    @DisplayName("save retries the whole transaction when a concurrent write created the same total first")
+    public void save_Retries_WhenTotalsInsertCollides() {
+        Gasto gastoToBeSaved = GastoCreator.createGastoToBeSaved();
+        AtomicInteger attempts = new AtomicInteger();
+        when(gastoRepositoryMock.save(gastoToBeSaved))
+                .thenReturn(Mono.just(gasto));
+        when(gastoTotalsRepositoryMock.apply(any(GastoTotalsDelta.class)))
+                .thenReturn(Mono.defer(() -> attempts.incrementAndGet() == 1
+                        ? Mono.error(new DataIntegrityViolationException("duplicate key"))
+                        : Mono.empty()));
+
+        StepVerifier.create(gastoService.save(gastoToBeSaved))
+                .expectSubscription()
+                .expectNext(gasto)
+                .verifyComplete();
+
+        assertEquals(2, attempts.get());
+    }
+
+    @Test
+    @DisplayName("delete returns Mono error and leaves the totals alone when expense does not exist")
+    public void delete_ReturnMonoError_WhenGastoDoesNotExist() {
+        when(gastoRepositoryMock.findByIdForUpdate(anyLong()))
+                .thenReturn(Mono.empty());
+
+        StepVerifier.create(gastoService.delete(1))
+                .expectSubscription()
+                .expectError(ResponseStatusException.class)
+                .verify();
+
+        verify(gastoRepositoryMock, never()).remove(anyLong());
+        verify(gastoTagRepositoryMock, never()).unlink(anyLong());
+        verify(gastoTotalsRepositoryMock, never()).apply(any(GastoTotalsDelta.class));
+    }
+
+    @Test
+    @DisplayName("delete subtracts the removed expense from the totals")
+    public void delete_SubtractsFromTotals_WhenSuccessful() {
+        StepVerifier.create(gastoService.delete(1))
+                .expectSubscription()
+                .verifyComplete();
+
+        ArgumentCaptor<GastoTotalsDelta> delta = ArgumentCaptor.forClass(GastoTotalsDelta.class);
+        verify(gastoTotalsRepositoryMock).apply(delta.capture());
+        GastoTotalsDelta.Totals month = delta.getValue().getMonths().get(LocalDate.of(2020, 10, 1));
+        assertEquals(-1, month.getCount());
+        assertEquals(new BigDecimal("-150.00"), month.getTotal());
+        verify(gastoTagRepositoryMock).unlink(1L);
+    }
+
+    @Test
+    @DisplayName("findByPeriodAndTags intersects the tag index when every tag is known")
+    public void findByPeriodAndTags_QueriesTagIndex_WhenAllTagsAreKnown() {
+        when(gastoTagInternerMock.find("mercado")).thenReturn(Mono.just(1L));
+        when(gastoTagInternerMock.find("casa")).thenReturn(Mono.just(2L));
+        when(gastoRepositoryMock.findByTagsAndDataRange(List.of(1L, 2L),
+                LocalDateTime.of(2020, 10, 1, 0, 0), LocalDateTime.of(2020, 11, 1, 0, 0)))
+                .thenReturn(Flux.just(gasto));
+
+        StepVerifier.create(gastoService.findByPeriodAndTags(LocalDate.of(2020, 10, 1), LocalDate.of(2020, 11, 1), List.of("mercado", "casa")))
+                .expectSubscription()
+                .expectNext(gasto)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("findByPeriodAndTags returns nothing without touching GASTO when a tag was never used")
+    public void findByPeriodAndTags_ReturnEmpty_WhenTagIsUnknown() {
+        when(gastoTagInternerMock.find("mercado")).thenReturn(Mono.just(1L));
+        when(gastoTagInternerMock.find("viagem")).thenReturn(Mono.empty());
+
+        StepVerifier.create(gastoService.findByPeriodAndTags(LocalDate.of(2020, 10, 1), LocalDate.of(2020, 11, 1), List.of("mercado", "viagem")))
+                .expectSubscription()
+                .verifyComplete();
+
+        verify(gastoRepositoryMock, never()).findByTagsAndDataRange(anyList(), any(LocalDateTime.class), any(LocalDateTime.class));
+    }
+
+    @Test
+    @DisplayName("totalsPerMonth reads whole months from the monthly table and sums the partial edges from the daily one")
+    public void totalsPerMonth_CombinesMonthlyAndDailyTotals_WhenRangeHasPartialMonths() {
+        LocalDate from = LocalDate.of(2020, 10, 15);
+        LocalDate to = LocalDate.of(2020, 12, 10);
+        when(gastoTotalsRepositoryMock.findDays(from, LocalDate.of(2020, 11, 1)))
+                .thenReturn(Flux.just(new GastoTotal("2020-10-16", 2, new BigDecimal("15.50")),
+                        new GastoTotal("2020-10-17", 1, new BigDecimal("20.00"))));
+        when(gastoTotalsRepositoryMock.findMonths(LocalDate.of(2020, 11, 1), LocalDate.of(2020, 12, 1)))
+                .thenReturn(Flux.just(new GastoTotal("2020-11", 1, new BigDecimal("1.25"))));
+        when(gastoTotalsRepositoryMock.findDays(LocalDate.of(2020, 12, 1), to))
+                .thenReturn(Flux.just(new GastoTotal("2020-12-05", 1, new BigDecimal("2.00"))));
+
+        StepVerifier.create(gastoService.totalsPerMonth(from, to))
+                .expectSubscription()
+                .expectNext(new GastoTotal("2020-10", 3, new BigDecimal("35.50")))
+                .expectNext(new GastoTotal("2020-11", 1, new BigDecimal("1.25")))
+                .expectNext(new GastoTotal("2020-12", 1, new BigDecimal("2.00")))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("totalsPerMonth groups daily totals by month when the range has no whole month")
+    public void totalsPerMonth_GroupsDailyTotals_WhenRangeHasNoWholeMonth() {
+        LocalDate from = LocalDate.of(2020, 10, 15);
+        LocalDate to = LocalDate.of(2020, 11, 10);
+        when(gastoTotalsRepositoryMock.findDays(from, to))
+                .thenReturn(Flux.just(new GastoTotal("2020-10-16", 2, new BigDecimal("15.50")),
+                        new GastoTotal("2020-11-02", 1, new BigDecimal("1.25"))));
+
+        StepVerifier.create(gastoService.totalsPerMonth(from, to))
+                .expectSubscription()
+                .expectNext(new GastoTotal("2020-10", 2, new BigDecimal("15.50")))
+                .expectNext(new GastoTotal("2020-11", 1, new BigDecimal("1.25")))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("rebuildTotals reads every chunk of ids and writes the summed totals once, after clearing them")
+    public void rebuildTotals_SumsEveryChunk_WhenSuccessful() {
+        mockRebuild(25L, Flux.just(
+                GastoCreator.createEntry(LocalDateTime.of(2020, 10, 16, 9, 0), "10.00", "mercado").withId(1L),
+                GastoCreator.createEntry(LocalDateTime.of(2020, 10, 17, 9, 0), "5.00", null).withId(2L)));
+
+        StepVerifier.create(gastoService.rebuildTotals())
+                .expectSubscription()
+                .expectNextCount(1)
+                .verifyComplete();
+
+        GastoTotalsRebuild rebuild = awaitRebuild();
+        assertEquals(GastoTotalsRebuild.State.COMPLETED, rebuild.getState());
+        assertEquals(3, rebuild.getChunks());
+        assertEquals(6, rebuild.getRows());
+
+        verify(gastoRepositoryMock).streamEntries(1, 11);
+        verify(gastoRepositoryMock).streamEntries(11, 21);
+        verify(gastoRepositoryMock).streamEntries(21, 31);
+        verify(gastoTagRepositoryMock, times(3)).link(eq(1L), any(LocalDateTime.class), anyList());
+
+        ArgumentCaptor<GastoTotalsDelta> totals = ArgumentCaptor.forClass(GastoTotalsDelta.class);
+        InOrder inOrder = inOrder(gastoTotalsRepositoryMock);
+        inOrder.verify(gastoTotalsRepositoryMock).clear();
+        inOrder.verify(gastoTotalsRepositoryMock).apply(totals.capture());
+        assertEquals(6, totals.getValue().getRows());
+        assertEquals(List.of(LocalDate.of(2020, 10, 16), LocalDate.of(2020, 10, 17)),
+                List.copyOf(totals.getValue().getDays().keySet()));
+        assertEquals(3, totals.getValue().getDays().get(LocalDate.of(2020, 10, 16)).getCount());
+    }
+
+    @Test
+    @DisplayName("rebuildTotals interns the distinct tags of a chunk before opening the chunk transaction")
+    public void rebuildTotals_InternsTagsBeforeTransaction_WhenChunkHasTags() {
+        mockRebuild(5L, Flux.just(
+                GastoCreator.createEntry(LocalDateTime.of(2020, 10, 16, 9, 0), "10.00", "mercado,casa").withId(1L),
+                GastoCreator.createEntry(LocalDateTime.of(2020, 10, 17, 9, 0), "5.00", "casa").withId(2L)));
+
+        gastoService.rebuildTotals().block();
+
+        GastoTotalsRebuild rebuild = awaitRebuild();
+        assertEquals(GastoTotalsRebuild.State.COMPLETED, rebuild.getState());
+        assertEquals(1, rebuild.getChunks());
+        assertEquals(2, rebuild.getRows());
+
+        InOrder inOrder = inOrder(gastoTagInternerMock, transactionalOperatorMock);
+        inOrder.verify(gastoTagInternerMock).intern(List.of("mercado", "casa"));
+        inOrder.verify(transactionalOperatorMock, atLeastOnce()).transactional(any(Mono.class));
+        verify(gastoTagRepositoryMock).link(1L, LocalDateTime.of(2020, 10, 16, 9, 0), List.of(1L, 2L));
+        verify(gastoTagRepositoryMock).link(2L, LocalDateTime.of(2020, 10, 17, 9, 0), List.of(2L));
+    }
+
+    @Test
+    @DisplayName("save, delete and the reports return service unavailable while the totals are being rebuilt")
+    public void save_ReturnServiceUnavailable_WhenRebuildIsRunning() {
+        when(gastoTagRepositoryMock.clear())
+                .thenReturn(Mono.never());
+        when(gastoRepositoryMock.save(any(Gasto.class)))
+                .thenReturn(Mono.just(gasto));
+
+        StepVerifier.create(gastoService.rebuildTotals())
+                .expectNextMatches(rebuild -> rebuild.getState() == GastoTotalsRebuild.State.RUNNING)
+                .verifyComplete();
+
+        StepVerifier.create(gastoService.save(GastoCreator.createGastoToBeSaved()))
+                .expectErrorMatches(e -> ((ResponseStatusException) e).getStatus() == HttpStatus.SERVICE_UNAVAILABLE)
+                .verify();
+        StepVerifier.create(gastoService.delete(1))
+                .expectErrorMatches(e -> ((ResponseStatusException) e).getStatus() == HttpStatus.SERVICE_UNAVAILABLE)
+                .verify();
+        StepVerifier.create(gastoService.totalsPerDay(LocalDate.of(2020, 10, 1), LocalDate.of(2020, 11, 1)))
+                .expectErrorMatches(e -> ((ResponseStatusException) e).getStatus() == HttpStatus.SERVICE_UNAVAILABLE)
+                .verify();
+        StepVerifier.create(gastoService.rebuildTotals())
+                .expectErrorMatches(e -> ((ResponseStatusException) e).getStatus() == HttpStatus.SERVICE_UNAVAILABLE)
+                .verify();
+        StepVerifier.create(gastoService.findRebuild())
+                .expectNextMatches(rebuild -> rebuild.getState() == GastoTotalsRebuild.State.RUNNING)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("a cancelled rebuild lets writes through but keeps the reports unavailable until a rebuild completes")
+    public void totalsPerDay_ReturnServiceUnavailable_WhenRebuildWasCancelled() {
+        when(gastoTagRepositoryMock.clear())
+                .thenReturn(Mono.never());
+        when(gastoRepositoryMock.save(any(Gasto.class)))
+                .thenReturn(Mono.just(gasto));
+        when(gastoTotalsRepositoryMock.findDays(any(LocalDate.class), any(LocalDate.class)))
+                .thenReturn(Flux.empty());
+
+        gastoService.rebuildTotals().block();
+        gastoService.destroy();
+
+        GastoTotalsRebuild cancelled = awaitRebuild();
+        assertEquals(GastoTotalsRebuild.State.FAILED, cancelled.getState());
+        assertEquals("Rebuild cancelled", cancelled.getError());
+        StepVerifier.create(gastoService.save(GastoCreator.createGastoToBeSaved()))
+                .expectNext(gasto)
+                .verifyComplete();
+        StepVerifier.create(gastoService.totalsPerDay(LocalDate.of(2020, 10, 1), LocalDate.of(2020, 11, 1)))
+                .expectErrorMatches(e -> ((ResponseStatusException) e).getStatus() == HttpStatus.SERVICE_UNAVAILABLE)
+                .verify();
+
+        mockRebuild(0L, Flux.empty());
+        gastoService.rebuildTotals().block();
+
+        assertEquals(GastoTotalsRebuild.State.COMPLETED, awaitRebuild().getState());
+        StepVerifier.create(gastoService.totalsPerDay(LocalDate.of(2020, 10, 1), LocalDate.of(2020, 11, 1)))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("a failed rebuild records the reason and does not touch the totals tables")
+    public void rebuildTotals_FailsJobWithoutWritingTotals_WhenChunkFails() {
+        mockRebuild(5L, Flux.error(new IllegalStateException("connection lost")));
+
+        gastoService.rebuildTotals().block();
+
+        GastoTotalsRebuild failed = awaitRebuild();
+        assertEquals(GastoTotalsRebuild.State.FAILED, failed.getState());
+        assertNotNull(failed.getError());
+        verify(gastoTotalsRepositoryMock, never()).clear();
+        StepVerifier.create(gastoService.totalsPerTag(LocalDate.of(2020, 10, 1), LocalDate.of(2020, 11, 1)))
+                .expectErrorMatches(e -> ((ResponseStatusException) e).getStatus() == HttpStatus.SERVICE_UNAVAILABLE)
+                .verify();
+    }
+
+    @Test
+    @DisplayName("findRebuild returns Mono error when no rebuild has run")
+    public void findRebuild_ReturnMonoError_WhenNoRebuildHasRun() {
+        StepVerifier.create(gastoService.findRebuild())
+                .expectErrorMatches(e -> ((ResponseStatusException) e).getStatus() == HttpStatus.NOT_FOUND)
+                .verify();
+    }
+
+    @Test
+    @DisplayName("rebuildTotals waits for the writes already in progress before clearing the tag index")
+    public void rebuildTotals_WaitsForWritesInProgress_WhenStarted() {
+        Gasto gastoToBeSaved = GastoCreator.createGastoToBeSaved();
+        List<String> events = new CopyOnWriteArrayList<>();
+        when(gastoRepositoryMock.save(gastoToBeSaved))
+                .thenReturn(Mono.just(gasto).delayElement(Duration.ofMillis(200)));
+        mockRebuild(0L, Flux.empty());
+        when(gastoTagRepositoryMock.clear())
+                .thenReturn(Mono.<Void>fromRunnable(() -> events.add("cleared")));
+
+        Mono<Gasto> save = gastoService.save(gastoToBeSaved)
+                .doOnNext(saved -> events.add("saved"))
+                .cache();
+        save.subscribe();
+        Mono.delay(Duration.ofMillis(50)).then(gastoService.rebuildTotals()).block();
+        save.block();
+
+        assertEquals(GastoTotalsRebuild.State.COMPLETED, awaitRebuild().getState());
+        assertEquals(List.of("saved", "cleared"), events);
+    }
+
+    private void mockRebuild(long maxId, Flux<Gasto> entries) {
+        when(gastoTotalsRepositoryMock.clear())
+                .thenReturn(Mono.empty());
+        when(gastoTagRepositoryMock.clear())
+                .thenReturn(Mono.empty());
+        when(gastoRepositoryMock.findMaxId())
+                .thenReturn(Mono.just(maxId));
+        when(gastoRepositoryMock.streamEntries(anyLong(), anyLong()))
+                .thenReturn(entries);
+    }
+
+    // o rebuild roda separado da requisição; espera ele sair de RUNNING
+    private GastoTotalsRebuild awaitRebuild() {
+        return gastoService.findRebuild()
+                .filter(rebuild -> rebuild.getState() != GastoTotalsRebuild.State.RUNNING)
+                .repeatWhenEmpty(attempts -> attempts.delayElements(Duration.ofMillis(10)))
+                .block(Duration.ofSeconds(5));
+    }
+}
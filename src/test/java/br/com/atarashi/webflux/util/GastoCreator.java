@@ -0,0 +1,31 @@
+package br.com.atarashi.webflux.util;
+
+import br.com.atarashi.webflux.domain.Gasto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+public class GastoCreator {
+
+    public static Gasto createGastoToBeSaved() {
+        return Gasto.builder()
+                .nome("Mercado")
+                .descricao("Compras da semana")
+                .data(LocalDateTime.of(2020, 10, 16, 10, 0))
+                .valor(new BigDecimal("150.00"))
+                .tags("mercado,casa")
+                .build();
+    }
+
+    public static Gasto createValidGasto() {
+        return createGastoToBeSaved().withId(1L);
+    }
+
+    public static Gasto createEntry(LocalDateTime data, String valor, String tags) {
+        return Gasto.builder()
+                .data(data)
+                .valor(new BigDecimal(valor))
+                .tags(tags)
+                .build();
+    }
+}